@@ -0,0 +1,66 @@
+package Game1.AI;
+
+import Game1.models.Block;
+import Game1.models.Board;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** PathOptimizer 的输出不比输入长、每格合法、终点和输入相同 */
+class PathOptimizerTest {
+
+    @Test
+    void narrowBeamPathsGetShorterAndStillWin() {
+        for (MoveModel model : MoveModel.values()) {
+            for (int level : TestBoards.LEVELS) {
+                Board board = TestBoards.level(level);
+                SolveResult r = new BeamSolver(StateCodec.KeyMode.SHAPE, false, null, 1,
+                        () -> SeenSet.window(8), 64, 400).solve(SolveRequest.of(board).withMoveModel(model));
+                if (!r.isSolved()) continue;
+
+                List<MoveInfo> shorter = new PathOptimizer().optimize(board, r.moves, model);
+                assertTrue(shorter.size() <= r.moves.size());
+                assertTrue(shorter.size() >= TestBoards.optimum(model, level));
+                Board end = TestBoards.play(board, shorter);
+                assertNotNull(end, "illegal move after optimizing");
+                assertTrue(end.isWin());
+            }
+        }
+    }
+
+    @Test
+    void randomWalkKeepsItsEndState() {
+        Board board = TestBoards.level(1);
+        Board walked = new Board(board);
+        List<MoveInfo> walk = new ArrayList<>();
+        Random rnd = new Random(1);
+        while (walk.size() < 300) {
+            int idx = rnd.nextInt(walked.getBlocks().size());
+            Board.Direction dir = Board.Direction.values()[rnd.nextInt(4)];
+            Block block = walked.getBlocks().get(idx);
+            if (!walked.canMove(block, dir)) continue;
+            walked.moveBlock(block, dir);
+            walk.add(new MoveInfo(idx, dir));
+        }
+
+        List<MoveInfo> shorter = new PathOptimizer().optimize(board, walk, MoveModel.STEP);
+        assertTrue(shorter.size() < walk.size());
+        Board end = TestBoards.play(board, shorter);
+        assertNotNull(end);
+        StateCodec codec = StateCodec.of(board, StateCodec.KeyMode.SHAPE, false);
+        assertEquals(codec.key(codec.encode(walked)), codec.key(codec.encode(end)));
+    }
+
+    @Test
+    void illegalInputIsReturnedUnchanged() {
+        Board board = TestBoards.level(1);
+        List<MoveInfo> bad = List.of(new MoveInfo(0, Board.Direction.UP), new MoveInfo(0, Board.Direction.UP));
+        assertEquals(bad, new PathOptimizer().optimize(board, bad, MoveModel.STEP));
+    }
+}
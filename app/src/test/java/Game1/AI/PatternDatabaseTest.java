@@ -0,0 +1,42 @@
+package Game1.AI;
+
+import Game1.models.Board;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** 模式数据库必须可采纳：任何状态上的估计都不超过 SolutionTable 里的真实最短步数（STEP） */
+class PatternDatabaseTest {
+    private static final int WALK = 5000;
+
+    @Test
+    void estimateNeverExceedsTableDistance() {
+        for (int level : TestBoards.LEVELS) {
+            Board board = TestBoards.level(level);
+            PatternDatabase pdb = PatternDatabase.of(board, null);   // 只在内存里构建，不读写文件
+            assertNotNull(pdb, "built-in layout should have a pattern database");
+            SolutionTable table = SolutionTable.build(board);
+            StateCodec codec = StateCodec.of(board);
+
+            long s = codec.encode(board);
+            assertEquals(TestBoards.optimum(MoveModel.STEP, level), table.distance(s));
+            Random rnd = new Random(level);
+            for (int i = 0; i < WALK; i++) {
+                int d = table.distance(s);
+                int h = pdb.estimate(s);
+                assertTrue(h <= d, "level " + level + ": estimate " + h + " > distance " + d);
+                assertTrue(codec.lowerBound(s, MoveModel.STEP) <= d);
+                long next;
+                do {
+                    next = codec.move(s, codec.occupancy(s), rnd.nextInt(codec.blockCount()),
+                            Board.Direction.values()[rnd.nextInt(4)]);
+                } while (next == StateCodec.ILLEGAL);
+                s = next;
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package Game1.AI;
+
+import Game1.models.Board;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 注册表里的每个求解器、两种走法模型、三个内置关卡：
+ * 解必须能在真实棋盘上逐格重放并胜利；保证最优的求解器必须给出已知的最短步数。
+ */
+class SolverTest {
+
+    @TestFactory
+    List<DynamicTest> everySolverSolvesBuiltInLevels() {
+        List<DynamicTest> tests = new ArrayList<>();
+        for (String name : SolverRegistry.names()) {
+            for (MoveModel model : MoveModel.values()) {
+                for (int level : TestBoards.LEVELS) {
+                    tests.add(DynamicTest.dynamicTest(name + " " + model + " level " + level,
+                            () -> check(name, model, level)));
+                }
+            }
+        }
+        return tests;
+    }
+
+    private static void check(String name, MoveModel model, int level) {
+        Board board = TestBoards.level(level);
+        Solver solver = SolverRegistry.create(name);
+        SolveResult result = solver.solve(SolveRequest.of(board).withMoveModel(model).withTimeLimit(60_000));
+
+        assertTrue(result.isSolved(), "no complete solution");
+        Board end = TestBoards.play(board, result.moves);
+        assertNotNull(end, "illegal move in solution");
+        assertTrue(end.isWin(), "solution does not reach the goal");
+
+        int optimum = TestBoards.optimum(model, level);
+        assertTrue(result.moves.size() >= optimum, "shorter than the known optimum: " + result.moves.size());
+        if (result.optimal) assertEquals(optimum, result.moves.size(), "claims optimal");
+        if (solver.guaranteesOptimal()) {
+            assertTrue(result.optimal, "optimal solver did not prove optimality");
+            assertEquals(optimum, result.moves.size());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package Game1.AI;
+
+import Game1.models.Board;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** 键、规范化和镜像在随机游走得到的状态上的基本性质 */
+class StateCodecTest {
+    private static final int WALK = 2000;
+
+    @Test
+    void mirrorIsAnInvolution() {
+        forWalkStates(StateCodec.KeyMode.INDEXED, false, (codec, s) -> {
+            long m = codec.mirror(s);
+            assertEquals(s, codec.mirror(m));
+            assertEquals(Integer.bitCount(codec.occupancy(s)), Integer.bitCount(codec.occupancy(m)));
+            assertEquals(codec.isGoal(s), codec.isGoal(m));
+        });
+    }
+
+    @Test
+    void canonicalIsIdempotentAndKeepsOccupancy() {
+        forWalkStates(StateCodec.KeyMode.SHAPE, false, (codec, s) -> {
+            long c = codec.canonical(s);
+            assertEquals(c, codec.canonical(c));
+            assertEquals(codec.occupancy(s), codec.occupancy(c));
+            assertEquals(c, codec.key(s));
+        });
+    }
+
+    @Test
+    void mirroredStatesShareFoldedKey() {
+        forWalkStates(StateCodec.KeyMode.SHAPE, true, (codec, s) -> {
+            long key = codec.key(s);
+            assertEquals(key, codec.key(codec.mirror(s)));
+            assertEquals(key, codec.key(key), "key must itself be a valid state with the same key");
+            long c = codec.canonical(s);
+            assertTrue(key == c || key == codec.canonical(codec.mirror(s)));
+        });
+    }
+
+    @Test
+    void indexedKeyIsIdentity() {
+        forWalkStates(StateCodec.KeyMode.INDEXED, false, (codec, s) -> assertEquals(s, codec.key(s)));
+    }
+
+    @Test
+    void encodeMatchesMovedBoard() {
+        Board board = TestBoards.level(1);
+        StateCodec codec = StateCodec.of(board);
+        long s = codec.encode(board);
+        Random rnd = new Random(7);
+        for (int i = 0; i < WALK; i++) {
+            int idx = rnd.nextInt(codec.blockCount());
+            Board.Direction dir = Board.Direction.values()[rnd.nextInt(4)];
+            long next = codec.move(s, codec.occupancy(s), idx, dir);
+            boolean legal = board.canMove(board.getBlocks().get(idx), dir);
+            assertEquals(legal, next != StateCodec.ILLEGAL);
+            if (!legal) continue;
+            board.moveBlock(board.getBlocks().get(idx), dir);
+            s = next;
+            assertEquals(codec.encode(board), s);
+        }
+        assertNotEquals(0, codec.occupancy(s));
+    }
+
+    private interface StateCheck {
+        void check(StateCodec codec, long state);
+    }
+
+    // 每个内置关卡从开局随机游走，对途经的每个状态做检查
+    private static void forWalkStates(StateCodec.KeyMode mode, boolean fold, StateCheck check) {
+        for (int level : TestBoards.LEVELS) {
+            Board board = TestBoards.level(level);
+            StateCodec codec = StateCodec.of(board, mode, fold);
+            long[] buf = new long[codec.cells()];
+            long[] next = new long[codec.blockCount() * codec.cells()];
+            long s = codec.encode(board);
+            Random rnd = new Random(level);
+            for (int i = 0; i < WALK; i++) {
+                check.check(codec, s);
+                int n = 0;
+                int occ = codec.occupancy(s);
+                for (int idx = 0; idx < codec.blockCount(); idx++) {
+                    int c = codec.successors(s, occ, idx, MoveModel.STEP, buf);
+                    System.arraycopy(buf, 0, next, n, c);
+                    n += c;
+                }
+                s = next[rnd.nextInt(n)];
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package Game1.AI;
+
+import Game1.models.Block;
+import Game1.models.Board;
+
+import java.util.List;
+
+/** 测试共用：内置关卡和在棋盘副本上逐格重放 */
+final class TestBoards {
+    static final int[] LEVELS = {1, 2, 3};
+
+    private TestBoards() {
+    }
+
+    static Board level(int level) {
+        Board board = new Board();
+        board.initializeBoard(level);
+        return board;
+    }
+
+    /** 各关的最短步数，下标是关卡号 */
+    static int optimum(MoveModel model, int level) {
+        int[] step = {0, 116, 119, 78};
+        int[] slide = {0, 81, 82, 54};
+        return model == MoveModel.STEP ? step[level] : slide[level];
+    }
+
+    /** 在副本上走完 moves，每格都先 canMove；有不合法的一格时返回 null */
+    static Board play(Board board, List<MoveInfo> moves) {
+        Board copy = new Board(board);
+        for (MoveInfo move : moves) {
+            Block block = copy.getBlocks().get(move.blockIndex);
+            for (Board.Direction dir : move.path) {
+                if (!copy.canMove(block, dir)) return null;
+                copy.moveBlock(block, dir);
+            }
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,61 @@
+package Game1.benchmarks;
+
+import Game1.models.Block;
+import Game1.models.Board;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 游戏模型本身的开销：Board.canMove、走一步再悔棋（每步都会记历史），以及复制棋盘。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true"})
+@State(Scope.Thread)
+public class BoardBenchmark {
+    private static final Board.Direction[] DIRS = Board.Direction.values();
+
+    @Param({"level1", "level2", "level3"})
+    public String layout;
+
+    private Board board;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        board = Layouts.create(layout);
+    }
+
+    /** 所有方块 x 四个方向各检查一次 */
+    @Benchmark
+    public void canMove(Blackhole bh) {
+        for (Block b : board.getBlocks()) {
+            for (Board.Direction dir : DIRS) {
+                bh.consume(board.canMove(b, dir));
+            }
+        }
+    }
+
+    /** 求解器和提示功能都会复制棋盘 */
+    @Benchmark
+    public Board copy() {
+        return new Board(board);
+    }
+
+    /** 找到第一个能动的方块，走一步（记一条历史）再悔棋，棋盘回到原状 */
+    @Benchmark
+    public boolean moveAndUndo() {
+        for (Block b : board.getBlocks()) {
+            for (Board.Direction dir : DIRS) {
+                if (board.canMove(b, dir)) {
+                    board.moveBlock(b, dir);
+                    return board.undo();
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,109 @@
+package Game1.benchmarks;
+
+import Game1.AI.SolutionTable;
+import Game1.AI.StateCodec;
+import Game1.models.Block;
+import Game1.models.Board;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 基准测试用的布局。
+ * - level1 ~ level3：内置关卡的初始布局
+ * - farN：从第 N 关的连通分量里挑出的离终点最远的布局（按最优步数），比内置关卡更难
+ * - midN：同一分量里最优步数在中间的布局，搜索量介于两者之间
+ * 生成的布局在同一 JVM 里只算一次。
+ */
+public final class Layouts {
+    public static final String[] NAMES = {"level1", "level2", "level3", "far1", "mid1"};
+
+    private static final Board.Direction[] DIRS = Board.Direction.values();
+
+    private Layouts() {
+    }
+
+    public static Board create(String name) {
+        if (name.startsWith("level")) {
+            return level(Integer.parseInt(name.substring(5)));
+        }
+        if (name.startsWith("far")) {
+            return generated(Integer.parseInt(name.substring(3)), 1.0);
+        }
+        if (name.startsWith("mid")) {
+            return generated(Integer.parseInt(name.substring(3)), 0.5);
+        }
+        throw new IllegalArgumentException("unknown layout: " + name);
+    }
+
+    public static Board level(int level) {
+        Board board = new Board();
+        board.initializeBoard(level);
+        return board;
+    }
+
+    /**
+     * 枚举第 level 关所有可达状态，取最优步数约为最大值 fraction 倍的那个；
+     * 同样步数的取键最小的，保证每次生成的布局相同。
+     */
+    public static synchronized Board generated(int level, double fraction) {
+        Board layout = level(level);
+        SolutionTable table = SolutionTable.build(layout);
+        StateCodec codec = StateCodec.of(layout, StateCodec.KeyMode.SHAPE);
+
+        List<Long> states = reachable(codec, codec.canonical(codec.encode(layout)));
+        int max = 0;
+        for (long s : states) {
+            int d = table.distance(s);
+            if (d != SolutionTable.NO_SOLUTION) max = Math.max(max, d);
+        }
+        int target = (int) Math.round(max * fraction);
+
+        long pick = -1;
+        for (long s : states) {
+            if (table.distance(s) == target && (pick == -1 || s < pick)) pick = s;
+        }
+        return toBoard(layout, codec, pick);
+    }
+
+    private static List<Long> reachable(StateCodec codec, long start) {
+        Set<Long> seen = new HashSet<>();
+        List<Long> order = new ArrayList<>();
+        seen.add(start);
+        order.add(start);
+        for (int head = 0; head < order.size(); head++) {
+            long cur = order.get(head);
+            int occ = codec.occupancy(cur);
+            for (int idx = 0; idx < codec.blockCount(); idx++) {
+                for (Board.Direction dir : DIRS) {
+                    long next = codec.move(cur, occ, idx, dir);
+                    if (next == StateCodec.ILLEGAL) continue;
+                    next = codec.canonical(next);
+                    if (seen.add(next)) order.add(next);
+                }
+            }
+        }
+        return order;
+    }
+
+    /** 按压缩状态摆放 layout 的方块，得到新棋盘 */
+    public static Board toBoard(Board layout, StateCodec codec, long state) {
+        Board board = new Board(layout);
+        List<Block> blocks = board.getBlocks();
+        for (int i = 0; i < blocks.size(); i++) {
+            board.setBlockPosition(blocks.get(i), codec.x(state, i), codec.y(state, i));
+        }
+        board.setMoves(0);
+        return board;
+    }
+
+    /** 从 layout 出发广度优先取前 n 个不同的状态，给走法生成的基准测试用 */
+    public static long[] sampleStates(Board layout, StateCodec codec, int n) {
+        List<Long> states = reachable(codec, codec.canonical(codec.encode(layout)));
+        long[] out = new long[Math.min(n, states.size())];
+        for (int i = 0; i < out.length; i++) out[i] = states.get(i);
+        return out;
+    }
+}
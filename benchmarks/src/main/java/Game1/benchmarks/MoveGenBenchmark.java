@@ -0,0 +1,82 @@
+package Game1.benchmarks;
+
+import Game1.AI.MoveModel;
+import Game1.AI.StateCodec;
+import Game1.models.Board;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 求解器内层循环的开销：对一批固定状态生成全部走法、计算去重键。
+ * 结果按“每个状态”计（OperationsPerInvocation），可以直接和 SolverBenchmark 的扩展速度比较。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true"})
+@State(Scope.Benchmark)
+public class MoveGenBenchmark {
+    private static final int SAMPLE = 4096;
+    private static final Board.Direction[] DIRS = Board.Direction.values();
+
+    @Param({"INDEXED", "SHAPE"})
+    public StateCodec.KeyMode keyMode;
+
+    @Param({"false", "true"})
+    public boolean foldMirror;
+
+    private StateCodec codec;
+    private long[] states;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Board layout = Layouts.level(1);
+        codec = StateCodec.of(layout, keyMode, foldMirror);
+        states = Layouts.sampleStates(layout, StateCodec.of(layout, StateCodec.KeyMode.SHAPE), SAMPLE);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLE)
+    public void expand(Blackhole bh) {
+        for (long s : states) {
+            int occ = codec.occupancy(s);
+            for (int idx = 0; idx < codec.blockCount(); idx++) {
+                for (Board.Direction dir : DIRS) {
+                    long next = codec.move(s, occ, idx, dir);
+                    if (next != StateCodec.ILLEGAL) bh.consume(next);
+                }
+            }
+        }
+    }
+
+    /** SLIDE 走法：每块一次按位扩散得到所有滑动终点 */
+    @Benchmark
+    @OperationsPerInvocation(SAMPLE)
+    public void expandSlides(Blackhole bh) {
+        long[] buf = new long[codec.cells()];
+        for (long s : states) {
+            int occ = codec.occupancy(s);
+            for (int idx = 0; idx < codec.blockCount(); idx++) {
+                int n = codec.successors(s, occ, idx, MoveModel.SLIDE, buf);
+                for (int k = 0; k < n; k++) bh.consume(buf[k]);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLE)
+    public void expandWithKeys(Blackhole bh) {
+        for (long s : states) {
+            int occ = codec.occupancy(s);
+            for (int idx = 0; idx < codec.blockCount(); idx++) {
+                for (Board.Direction dir : DIRS) {
+                    long next = codec.move(s, occ, idx, dir);
+                    if (next != StateCodec.ILLEGAL) bh.consume(codec.key(next));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package Game1.benchmarks;
+
+import Game1.Controllers.GameController;
+import Game1.Controllers.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 存档和读档：GameController.saveGame / loadGame（写在当前目录的 saves/ 下，结束时删除）。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true"})
+@State(Scope.Thread)
+public class PersistenceBenchmark {
+    private static final String USER = "jmh-bench";
+
+    private GameController controller;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        controller = new GameController();
+        controller.setCurrentUser(new User(USER, ""));
+        controller.setLevel(1);
+        controller.initialize_Board();
+        if (!controller.saveGame()) throw new IllegalStateException("cannot write save file");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        new File("saves/" + USER + ".klotski").delete();
+    }
+
+    @Benchmark
+    public boolean saveGame() {
+        return controller.saveGame();
+    }
+
+    @Benchmark
+    public boolean loadGame() {
+        return controller.loadGame();
+    }
+}
@@ -0,0 +1,66 @@
+package Game1.benchmarks;
+
+import Game1.AI.MoveModel;
+import Game1.AI.SolveRequest;
+import Game1.AI.SolveResult;
+import Game1.AI.Solver;
+import Game1.AI.SolverRegistry;
+import Game1.models.Board;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 求解器的整体表现，每次调用都新建 SolveRequest（预算 30 秒，防止某个算法卡住整轮测试）。
+ * - solve：端到端求解时间
+ * - expansions：吞吐模式下把 Counters.expanded 报成每秒扩展的状态数（solve:expanded ops/s）
+ *
+ * java -jar benchmarks/target/benchmarks.jar SolverBenchmark -p solver=astar,hda -prof gc
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true"})
+@State(Scope.Benchmark)
+public class SolverBenchmark {
+    private static final long TIME_LIMIT_MS = 30_000;
+
+    @Param({"astar", "hda", "beam", "bidirectional", "ida", "bfs", "beam-adaptive", "anytime"})
+    public String solver;
+
+    @Param({"level1", "level2", "level3", "far1", "mid1"})
+    public String layout;
+
+    @Param({"STEP", "SLIDE"})
+    public MoveModel moveModel;
+
+    private Solver instance;
+    private Board board;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long expanded;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        instance = SolverRegistry.create(solver);
+        board = Layouts.create(layout);
+    }
+
+    @Benchmark
+    public SolveResult solve() {
+        return instance.solve(SolveRequest.of(board).withMoveModel(moveModel).withTimeLimit(TIME_LIMIT_MS));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public SolveResult expansions(Counters counters) {
+        SolveResult result = solve();
+        counters.expanded += result.expanded;
+        return result;
+    }
+}
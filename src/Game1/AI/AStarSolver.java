@@ -1,250 +1,249 @@
 package Game1.AI;
 
 import Game1.models.Board;
-import Game1.models.Block;
 
-import java.awt.Point;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * ߳ A* 
+ * 多线程 A* 搜索求解器，带搜索进度输出
+ * - 找到解以后不马上停：f 不小于当前最优解长度的状态取出后直接丢掉，子状态也不再入队，
+ *   pending（已入队但还没扩展完的状态数）归零时才结束，这样并发下返回的也一定是最短解
+ * - visited 的 best-g 用 CAS 原子更新，不会被并发的 get/put 覆盖成更差的值
+ * - 走法按请求的 MoveModel 生成；STEP 下启发值查 PatternDatabase，
+ *   SLIDE 下（或布局不适用时）用 StateCodec.lowerBound，都可采纳
  */
-public class AStarSolver {
-    private static final int EXIT_R = 3, EXIT_C = 1;
-    private static int R, C, caoIdx;
-    private static List<Block> blocks;
+public class AStarSolver implements Solver {
     private static final int THREAD_COUNT = Runtime.getRuntime().availableProcessors();
-    private static final AtomicInteger processed = new AtomicInteger(0);
-    private static final AtomicInteger maxDepth = new AtomicInteger(0);
-
-    public static List<MoveInfo> solve(Board board) {
-        R = Board.ROWS;
-        C = Board.COLS;
-        blocks = board.getBlocks();
-
-        caoIdx = -1;
-        for (int i = 0; i < blocks.size(); i++) {
-            if (blocks.get(i).getType() == Block.BlockType.CAO_CAO) {
-                caoIdx = i;
-                break;
-            }
-        }
-        if (caoIdx == -1) {
-            System.out.println("δҵܲٷ飡");
-            return Collections.emptyList();
-        }
-
-        State start = State.fromBoard();
-        PriorityBlockingQueue<State> open = new PriorityBlockingQueue<>();
-        ConcurrentHashMap<StateKey, Integer> visited = new ConcurrentHashMap<>();
 
-        open.offer(start);
-        visited.put(start.key, start.g);
+    private final StateCodec.KeyMode keyMode;
+    private final boolean foldMirror;
+    private final boolean proveOptimal;
+    private final ExecutorService executor;   // 为 null 时每次求解自建线程池
+    private final int threads;
 
-        AtomicBoolean solved = new AtomicBoolean(false);
-        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
-        CompletionService<List<MoveInfo>> completionService = new ExecutorCompletionService<>(executor);
+    public AStarSolver() {
+        this(StateCodec.KeyMode.SHAPE, false);
+    }
 
-        Runnable worker = () -> {
-            while (!solved.get()) {
-                State cur;
-                try {
-                    cur = open.poll(50, TimeUnit.MILLISECONDS);
-                    if (cur == null) continue;
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    return;
-                }
+    /**
+     * foldMirror 为 true 时，visited 里只存状态和其左右镜像中较小的键，
+     * 镜像状态到终点的步数相同，因此搜索量和内存大约减半。
+     */
+    public AStarSolver(StateCodec.KeyMode keyMode, boolean foldMirror) {
+        this(keyMode, foldMirror, true, null, THREAD_COUNT);
+    }
 
-                int count = processed.incrementAndGet();
-                if (cur.g > maxDepth.get()) maxDepth.set(cur.g);
-                if (count % 100000 == 0) {
-                    System.out.printf("߳[%s] Ѵ״̬: %d, ǰ: %d, openдС: %d, visited״̬: %d%n",
-                            Thread.currentThread().getName(), count, maxDepth.get(), open.size(), visited.size());
-                }
+    /**
+     * proveOptimal 为 false 时，第一个弹出的终点状态就返回（更快，但并发下不保证最短），
+     * 结果里 optimal 标记为 false；为 true 时按最优终止条件结束，optimal 为 true。
+     * executor 可以是多个求解共用的线程池，此时求解结束后不会关闭它。
+     */
+    public AStarSolver(StateCodec.KeyMode keyMode, boolean foldMirror, boolean proveOptimal,
+                       ExecutorService executor, int threads) {
+        this.keyMode = keyMode;
+        this.foldMirror = foldMirror;
+        this.proveOptimal = proveOptimal;
+        this.executor = executor;
+        this.threads = Math.max(1, threads);
+    }
 
-                if (cur.h == 0) {
-                    if (solved.compareAndSet(false, true)) {
-                        completionService.submit(() -> reconstructPath(cur));
-                    }
-                    return;
-                }
+    @Override
+    public boolean guaranteesOptimal() {
+        return proveOptimal;
+    }
 
-                for (int idx = 0; idx < blocks.size(); idx++) {
-                    for (Board.Direction dir : Board.Direction.values()) {
-                        if (!cur.canMove(idx, dir)) continue;
-                        if (cur.isReverseMove(idx, dir)) continue;
-
-                        State ns = cur.move(idx, dir);
-                        Integer prevG = visited.get(ns.key);
-                        if (prevG == null || ns.g < prevG) {
-                            visited.put(ns.key, ns.g);
-                            open.offer(ns);
-                        }
-                    }
-                }
-            }
-        };
+    @Override
+    public SolveResult solve(SolveRequest request) {
+        Board board = request.getBoard();
+        StateCodec codec = StateCodec.of(board, keyMode, foldMirror);
+        if (codec.caoIndex() == -1) {
+            System.out.println("未找到曹操方块！");
+            return SolveResult.none(0);
+        }
 
-        for (int i = 0; i < THREAD_COUNT; i++) {
-            executor.execute(worker);
+        boolean optimalRun = proveOptimal || request.isRequireOptimal();
+        Search search = new Search(codec, request, optimalRun);
+        long packed = codec.encode(board);
+        State start = new State(0, search.estimate(packed), packed, -1, null);
+        search.push(start, 0);
+        search.visited.put(codec.key(start.packed), start.g);
+
+        ExecutorService pool = executor != null ? executor : Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            final int stripe = i;
+            futures.add(pool.submit(() -> search.work(stripe)));
         }
 
         try {
-            Future<List<MoveInfo>> result = completionService.take();
-            executor.shutdownNow();
-            return result.get();
+            for (Future<?> f : futures) f.get();
         } catch (InterruptedException | ExecutionException e) {
             e.printStackTrace();
-            return Collections.emptyList();
+            return SolveResult.none(search.expanded.get());
+        } finally {
+            search.done = true;
+            if (pool != executor) pool.shutdownNow();
         }
-    }
 
-    private static List<MoveInfo> reconstructPath(State state) {
-        LinkedList<MoveInfo> path = new LinkedList<>();
-        while (state.move != null) {
-            path.addFirst(state.move);
-            state = state.parent;
+        long expanded = search.expanded.get();
+        State best = search.best.get();
+        if (best == null) {
+            // 预算用完还没找到解：返回离终点最近的那个状态的路径
+            State closest = search.closest.get();
+            return SolveResult.partial(closest == null ? Collections.emptyList() : reconstructPath(codec, closest), expanded);
         }
-        return path;
+        return new SolveResult(reconstructPath(codec, best), optimalRun && !search.outOfBudget, expanded);
     }
 
-    private static class State implements Comparable<State> {
-        final int g, h, f;
-        final int[][] grid;
-        final List<List<Point>> cells;
-        final MoveInfo move;
-        final State parent;
-        final StateKey key;
+    // 一次求解的全部状态
+    private class Search {
+        final StateCodec codec;
+        final BucketOpenList<State> open = new BucketOpenList<>(threads);
+        final ConcurrentHashMap<Long, Integer> visited = new ConcurrentHashMap<>();
+        final AtomicReference<State> best = new AtomicReference<>();
+        // 已入队但还没处理完的状态数：入队前加一，扩展完（子状态都已入队）才减一，
+        // 所以归零时 open 表是空的、也没有线程手上还有状态，和 HdaStarSolver 的做法一样
+        final AtomicLong pending = new AtomicLong();
+        final AtomicLong expanded = new AtomicLong();
+        final AtomicInteger maxDepth = new AtomicInteger();
+        final AtomicReference<State> closest = new AtomicReference<>();   // h 最小的已扩展状态
+        final SolveRequest request;
+        final MoveModel model;
+        final PatternDatabase pdb;   // 只在 STEP 下使用
+        final boolean proveOptimal;
+        volatile boolean done;
+        volatile boolean outOfBudget;
+
+        Search(StateCodec codec, SolveRequest request, boolean proveOptimal) {
+            this.codec = codec;
+            this.request = request;
+            this.model = request.getMoveModel();
+            this.pdb = model == MoveModel.STEP ? PatternDatabase.of(request.getBoard()) : null;
+            this.proveOptimal = proveOptimal;
+        }
 
-        private State(int g, int[][] grid, List<List<Point>> cells, MoveInfo move, State parent) {
-            this.g = g;
-            this.grid = grid;
-            this.cells = cells;
-            this.move = move;
-            this.parent = parent;
-            this.h = calcHeuristic();
-            this.f = g + h;
-            this.key = new StateKey(grid);
+        int estimate(long state) {
+            return pdb != null ? pdb.estimate(state) : codec.lowerBound(state, model);
         }
 
-        static State fromBoard() {
-            int[][] g0 = new int[R][C];
-            for (int[] row : g0) Arrays.fill(row, -1);
-            List<List<Point>> c0 = new ArrayList<>();
-            for (int i = 0; i < blocks.size(); i++) c0.add(new ArrayList<>());
-            for (int i = 0; i < blocks.size(); i++) {
-                Block b = blocks.get(i);
-                for (int dy = 0; dy < b.getHeight(); dy++) {
-                    for (int dx = 0; dx < b.getWidth(); dx++) {
-                        int x = b.getX() + dx;
-                        int y = b.getY() + dy;
-                        g0[y][x] = i;
-                        c0.get(i).add(new Point(x, y));
-                    }
+        int bestCost() {
+            State b = best.get();
+            return b == null ? Integer.MAX_VALUE : b.g;
+        }
+
+        void work(int stripe) {
+            long[] buf = new long[codec.cells()];   // 本线程的后继缓冲区
+            while (!done) {
+                if (Thread.currentThread().isInterrupted()) return;
+                if (request.exhausted(expanded.get())) {
+                    outOfBudget = true;
+                    done = true;
+                    return;
+                }
+
+                State cur = open.poll(stripe);
+                if (cur == null) {
+                    if (pending.get() == 0) done = true;
+                    Thread.onSpinWait();
+                    continue;
+                }
+                try {
+                    expand(cur, stripe, buf);
+                } finally {
+                    pending.decrementAndGet();
                 }
             }
-            return new State(0, g0, c0, null, null);
         }
 
-        private int calcHeuristic() {
-            List<Point> caoCells = cells.get(caoIdx);
-            int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
-            for (Point p : caoCells) {
-                minX = Math.min(minX, p.x);
-                minY = Math.min(minY, p.y);
-            }
-            return Math.abs(minY - EXIT_R) + Math.abs(minX - EXIT_C);
+        void push(State s, int stripe) {
+            pending.incrementAndGet();
+            open.offer(s, s.f, stripe);
         }
 
-        boolean canMove(int idx, Board.Direction dir) {
-            int dx = 0, dy = 0;
-            switch (dir) {
-                case UP -> dy = -1;
-                case DOWN -> dy = 1;
-                case LEFT -> dx = -1;
-                case RIGHT -> dx = 1;
+        private void expand(State cur, int stripe, long[] buf) {
+            if (cur.f >= bestCost()) return;
+            Integer bestG = visited.get(codec.key(cur.packed));
+            if (bestG != null && bestG < cur.g) return;   // 已经有更短的路径到达过
+
+            long count = expanded.incrementAndGet();
+            maxDepth.accumulateAndGet(cur.g, Math::max);
+            if (count % 100000 == 0) {
+                System.out.printf("线程[%s] 已处理状态数: %d, 当前最大深度: %d, open队列大小: %d, visited状态数: %d%n",
+                        Thread.currentThread().getName(), count, maxDepth.get(), open.size(), visited.size());
             }
-            for (Point p : cells.get(idx)) {
-                int nx = p.x + dx, ny = p.y + dy;
-                if (nx < 0 || nx >= C || ny < 0 || ny >= R) return false;
-                int occ = grid[ny][nx];
-                if (occ != -1 && occ != idx) return false;
+
+            State c = closest.get();
+            if (c == null || cur.h < c.h) closest.compareAndSet(c, cur);
+
+            if (codec.isGoal(cur.packed)) {
+                offerSolution(cur);
+                if (!proveOptimal) done = true;
+                return;
             }
-            return true;
-        }
 
-        boolean isReverseMove(int idx, Board.Direction dir) {
-            if (parent == null || move == null) return false;
-            if (move.blockIndex == idx) {
-                return switch (move.direction) {
-                    case UP -> dir == Board.Direction.DOWN;
-                    case DOWN -> dir == Board.Direction.UP;
-                    case LEFT -> dir == Board.Direction.RIGHT;
-                    case RIGHT -> dir == Board.Direction.LEFT;
-                };
+            int occ = codec.occupancy(cur.packed);
+            for (int idx = 0; idx < codec.blockCount(); idx++) {
+                // SLIDE 下同一块接着再滑可以并成一步，不用再展开
+                if (model == MoveModel.SLIDE && idx == cur.blockIndex) continue;
+                int n = codec.successors(cur.packed, occ, idx, model, buf);
+                for (int k = 0; k < n; k++) {
+                    long next = buf[k];
+                    if (cur.parent != null && next == cur.parent.packed) continue;   // 原路退回
+
+                    int gNew = cur.g + 1;
+                    if (improve(codec.key(next), gNew)) {
+                        State ns = new State(gNew, estimate(next), next, idx, cur);
+                        if (ns.f < bestCost()) push(ns, stripe);
+                    }
+                }
             }
-            return false;
         }
 
-        State move(int idx, Board.Direction dir) {
-            int dx = 0, dy = 0;
-            switch (dir) {
-                case UP -> dy = -1;
-                case DOWN -> dy = 1;
-                case LEFT -> dx = -1;
-                case RIGHT -> dx = 1;
-            }
-            int gNew = g + 1;
-            int[][] ng = new int[R][C];
-            for (int y = 0; y < R; y++) System.arraycopy(grid[y], 0, ng[y], 0, C);
-            List<List<Point>> nc = new ArrayList<>();
-            for (List<Point> lst : cells) {
-                List<Point> cp = new ArrayList<>();
-                for (Point p : lst) cp.add(new Point(p));
-                nc.add(cp);
+        // best-g 的原子更新：只有确实更短时才写入并返回 true
+        private boolean improve(long key, int g) {
+            while (true) {
+                Integer prev = visited.putIfAbsent(key, g);
+                if (prev == null) return true;
+                if (g >= prev) return false;
+                if (visited.replace(key, prev, g)) return true;
             }
-            for (Point p : nc.get(idx)) ng[p.y][p.x] = -1;
-            for (Point p : nc.get(idx)) {
-                int nx = p.x + dx, ny = p.y + dy;
-                ng[ny][nx] = idx;
-            }
-            for (Point p : nc.get(idx)) p.translate(dx, dy);
-            return new State(gNew, ng, nc, new MoveInfo(idx, dir), this);
         }
 
-        @Override
-        public int compareTo(State o) {
-            return Integer.compare(this.f, o.f);
+        private void offerSolution(State s) {
+            while (true) {
+                State cur = best.get();
+                if (cur != null && s.g >= cur.g) return;
+                if (best.compareAndSet(cur, s)) return;
+            }
         }
     }
 
-    private static class StateKey {
-        private final byte[] data;
-
-        StateKey(int[][] grid) {
-            data = new byte[R * C];
-            for (int y = 0; y < R; y++) {
-                for (int x = 0; x < C; x++) {
-                    data[y * C + x] = (byte) (grid[y][x] + 1);
-                }
-            }
+    private static List<MoveInfo> reconstructPath(StateCodec codec, State state) {
+        LinkedList<MoveInfo> path = new LinkedList<>();
+        while (state.parent != null) {
+            path.addFirst(codec.moveBetween(state.parent.packed, state.packed));
+            state = state.parent;
         }
+        return path;
+    }
 
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (!(o instanceof StateKey)) return false;
-            StateKey other = (StateKey) o;
-            return Arrays.equals(data, other.data);
-        }
+    private static class State {
+        final int g, h, f;
+        final long packed;
+        final int blockIndex;      // 到达这个状态时动的是哪一块
+        final State parent;
 
-        @Override
-        public int hashCode() {
-            return Arrays.hashCode(data);
+        private State(int g, int h, long packed, int blockIndex, State parent) {
+            this.g = g;
+            this.h = h;
+            this.packed = packed;
+            this.blockIndex = blockIndex;
+            this.parent = parent;
+            this.f = g + h;
         }
     }
-}
\ No newline at end of file
+}
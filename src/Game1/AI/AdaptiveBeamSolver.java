@@ -0,0 +1,83 @@
+package Game1.AI;
+
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * 按时间预算自适应宽度的 beam search：
+ * - 先用很窄的 beam 快速拿到一个解，然后宽度按倍数放大重跑，直到请求的截止时间或最大宽度
+ * - 后面的每一轮只找比手上的解更短的：最大深度设成当前最优解长度减一，搜不到就提前结束
+ * - 某一轮一层都没截断时，beam 就是完整的 BFS，不用再放大了：找到的解就是最短的；
+ *   没找到时说明比手上的解更短的不存在，手上的解就是最短的
+ * - 到点时返回目前最短的解；一个解都没有时返回最后一轮离终点最近的部分路径
+ * 请求没有截止时间时，放大到 maxWidth 为止。
+ */
+public class AdaptiveBeamSolver implements Solver {
+    private static final int THREAD_COUNT = Runtime.getRuntime().availableProcessors();
+    public static final int INITIAL_WIDTH = 64;
+    public static final int GROWTH = 4;
+    public static final int MAX_WIDTH = 1 << 16;
+
+    private final StateCodec.KeyMode keyMode;
+    private final boolean foldMirror;
+    private final Supplier<SeenSet> seenPolicy;
+    private final int initialWidth;
+    private final int growth;
+    private final int maxWidth;
+
+    public AdaptiveBeamSolver() {
+        this(StateCodec.KeyMode.SHAPE, false, () -> SeenSet.window(8), INITIAL_WIDTH, GROWTH, MAX_WIDTH);
+    }
+
+    public AdaptiveBeamSolver(StateCodec.KeyMode keyMode, boolean foldMirror, Supplier<SeenSet> seenPolicy,
+                              int initialWidth, int growth, int maxWidth) {
+        this.keyMode = keyMode;
+        this.foldMirror = foldMirror;
+        this.seenPolicy = seenPolicy;
+        this.initialWidth = Math.max(1, initialWidth);
+        this.growth = Math.max(2, growth);
+        this.maxWidth = Math.max(this.initialWidth, maxWidth);
+    }
+
+    @Override
+    public SolveResult solve(SolveRequest request) {
+        SolveResult best = null;      // 目前最短的完整解
+        SolveResult last = null;      // 最后一轮的结果，没有完整解时用它的部分路径
+        long expanded = 0;
+        int maxDepth = BeamSolver.MAX_DEPTH;
+        // 各轮共用一个线程池
+        ExecutorService pool = THREAD_COUNT > 1 ? Executors.newFixedThreadPool(THREAD_COUNT) : null;
+
+        try {
+            for (long width = initialWidth; width <= maxWidth; width *= growth) {
+                if (request.exhausted(expanded)) break;
+                SolveRequest round = request.withMaxStates(Math.max(0, request.getMaxStates() - expanded));
+                BeamSolver beam = new BeamSolver(keyMode, foldMirror, pool, THREAD_COUNT, seenPolicy,
+                        (int) width, maxDepth);
+                SolveResult r = beam.solve(round);
+                expanded += r.expanded;
+                last = r;
+                System.out.printf("Adaptive beam: width=%d, %s, expanded=%d%n", width,
+                        r.isSolved() ? "length=" + r.moves.size() : "no shorter solution", expanded);
+
+                if (r.isSolved() && (best == null || r.moves.size() < best.moves.size())) {
+                    best = r;
+                    maxDepth = r.moves.size() - 1;
+                }
+                if (r.optimal) break;   // 这一轮是完整的 BFS，不会再有更短的
+                if (r.exhaustive) {
+                    // 深度上限是 best - 1 的完整 BFS 没有解：best 已经最短
+                    if (best != null) best = new SolveResult(best.moves, true, best.expanded);
+                    break;
+                }
+            }
+        } finally {
+            if (pool != null) pool.shutdownNow();
+        }
+
+        if (best != null) return new SolveResult(best.moves, best.optimal, expanded);
+        return SolveResult.partial(last == null ? Collections.emptyList() : last.moves, expanded);
+    }
+}
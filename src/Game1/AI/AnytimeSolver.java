@@ -0,0 +1,128 @@
+package Game1.AI;
+
+import java.util.Collections;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 随时可用（anytime）的求解器：先很快给出一个解，再不断换成更短的，最后证明最短。
+ * - 第一阶段：宽度逐级放大的 beam，窄的几十毫秒内就能给出第一个解；
+ *   拿到解以后每轮的最大深度设成当前最优长度减一，只找更短的
+ * - 第二阶段：用能保证最优的求解器（默认 A*）跑到底；某轮 beam 一层都没截断时
+ *   （找到了解，或者在 best - 1 以内证明了无解）已经是最短，跳过这一步
+ * - 每得到一个更短的完整解（或同样长但刚被证明最短）就回调 / 发布出去
+ * - 预算用完时停在当前阶段，返回目前最好的解
+ */
+public class AnytimeSolver implements Solver {
+    private static final int THREAD_COUNT = Runtime.getRuntime().availableProcessors();
+
+    private final int[] beamWidths;
+    private final Solver finisher;   // 构造时建好，各次求解共用
+
+    public AnytimeSolver() {
+        this(new int[]{64, 256, 1024}, AStarSolver::new);
+    }
+
+    /** finisher 应当是 guaranteesOptimal() 的求解器，否则最后一个解不一定最短 */
+    public AnytimeSolver(int[] beamWidths, Supplier<Solver> finisher) {
+        this.beamWidths = beamWidths.clone();
+        this.finisher = finisher.get();
+    }
+
+    @Override
+    public boolean guaranteesOptimal() {
+        return finisher.guaranteesOptimal();
+    }
+
+    @Override
+    public SolveResult solve(SolveRequest request) {
+        return solve(request, r -> { });
+    }
+
+    /**
+     * 同步求解，每个更好的解都先交给 onImprovement，最后返回最好的那个。
+     * 一个完整解都没有时，只在最后回调一次离终点最近的部分路径。
+     */
+    public SolveResult solve(SolveRequest request, Consumer<SolveResult> onImprovement) {
+        SolveResult best = null;
+        SolveResult last = null;
+        long expanded = 0;
+        int maxDepth = BeamSolver.MAX_DEPTH;
+
+        for (int width : beamWidths) {
+            if (request.exhausted(expanded)) break;
+            SolveResult r = new BeamSolver(StateCodec.KeyMode.SHAPE, false, null, THREAD_COUNT,
+                    () -> SeenSet.window(8), width, maxDepth).solve(remaining(request, expanded));
+            expanded += r.expanded;
+            last = r;
+            if (improves(r, best)) {
+                best = r;
+                maxDepth = r.moves.size() - 1;
+                System.out.printf("Anytime: beam width=%d, length=%d%s%n", width, r.moves.size(),
+                        r.optimal ? " (optimal)" : "");
+                onImprovement.accept(new SolveResult(r.moves, r.optimal, expanded));
+            }
+            if (r.optimal) return new SolveResult(r.moves, true, expanded);
+            if (r.exhaustive && best != null) {
+                // 深度上限 best - 1 的完整 BFS 没有解：手上的解已经最短，不用再跑 finisher
+                System.out.printf("Anytime: length=%d proven optimal by beam width=%d%n", best.moves.size(), width);
+                SolveResult proven = new SolveResult(best.moves, true, expanded);
+                onImprovement.accept(proven);
+                return proven;
+            }
+        }
+
+        if (!request.exhausted(expanded)) {
+            SolveResult r = finisher.solve(remaining(request, expanded));
+            expanded += r.expanded;
+            last = r;
+            if (improves(r, best)) {
+                best = r;
+                System.out.printf("Anytime: finisher length=%d%s%n", r.moves.size(), r.optimal ? " (optimal)" : "");
+                onImprovement.accept(new SolveResult(r.moves, r.optimal, expanded));
+            }
+        }
+
+        if (best != null) return new SolveResult(best.moves, best.optimal, expanded);
+        SolveResult partial = SolveResult.partial(last == null ? Collections.emptyList() : last.moves, expanded);
+        onImprovement.accept(partial);
+        return partial;
+    }
+
+    /**
+     * 异步求解：第一个订阅者订阅时才在后台线程开始，依次发出越来越好的解，求解结束时 onComplete。
+     * 订阅之前不会开始，所以不会有解因为还没人订阅而丢掉；只有第一个订阅者会收到全部结果。
+     */
+    public Flow.Publisher<SolveResult> publish(SolveRequest request) {
+        SubmissionPublisher<SolveResult> publisher = new SubmissionPublisher<>();
+        AtomicBoolean started = new AtomicBoolean();
+        return subscriber -> {
+            publisher.subscribe(subscriber);
+            if (!started.compareAndSet(false, true)) return;
+            Thread worker = new Thread(() -> {
+                try {
+                    solve(request, publisher::submit);
+                    publisher.close();
+                } catch (RuntimeException e) {
+                    publisher.closeExceptionally(e);
+                }
+            }, "anytime-solver");
+            worker.setDaemon(true);
+            worker.start();
+        };
+    }
+
+    // 更短，或者同样长但这次被证明是最短的
+    private static boolean improves(SolveResult r, SolveResult best) {
+        if (!r.isSolved()) return false;
+        if (best == null || r.moves.size() < best.moves.size()) return true;
+        return r.moves.size() == best.moves.size() && r.optimal && !best.optimal;
+    }
+
+    private static SolveRequest remaining(SolveRequest request, long expanded) {
+        return request.withMaxStates(Math.max(0, request.getMaxStates() - expanded));
+    }
+}
@@ -1,179 +1,308 @@
 package Game1.AI;
 
 import Game1.models.Board;
-import Game1.models.Block;
-import java.awt.Point;
+
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 
 /**
  * Improved Beam Search Solver:
- * - ÿ㱣ǰ W ״̬ f = g + h 򣬼·Ⱥֵ
- * - ȷǿܵĽ⡣
+ * - 每层保留前 W 个状态，按 f = g + h 排序，兼顾路径长度和启发值。
+ * - 增加最大深度以确保覆盖可能的解。
+ * - 一层里的状态分段并行展开，每段写进自己的候选缓冲区（跨层复用），
+ *   再按段的顺序合并去重，结果和单线程展开完全一样
+ * - 同一层的 g 都相同，按 f 排序等于按 h 排序；用快速选择 O(n) 挑出前 W 个，只对这 W 个排序
+ * - seen 存压缩后的键，不装箱；用哪种去重表可以配置，默认只记最近几层，内存 O(W) 而不是 O(生成总数)
  */
-public class BeamSolver {
-    private static final int EXIT_R = 3, EXIT_C = 1;
+public class BeamSolver implements Solver {
+    private static final int THREAD_COUNT = Runtime.getRuntime().availableProcessors();
     private static final int BLOCKER_PENALTY = 2;
-    private static final int BEAM_WIDTH = 2000;  //  beam 
-    private static final int MAX_DEPTH = 200;    // ̽
-
-    private static int R, C, caoIdx;
-    private static List<Block> blocks;
-
-    public static List<MoveInfo> solve(Board board) {
-        R = Board.ROWS;
-        C = Board.COLS;
-        blocks = board.getBlocks();
-        for (int i = 0; i < blocks.size(); i++) {
-            if (blocks.get(i).getType() == Block.BlockType.CAO_CAO) {
-                caoIdx = i;
-                break;
-            }
+    public static final int BEAM_WIDTH = 2000;  // 增大 beam 宽度
+    public static final int MAX_DEPTH = 200;    // 增加最大探索深度
+    private static final int PARALLEL_MIN = 256; // beam 比这小时直接在当前线程展开
+    private static final Supplier<SeenSet> DEFAULT_SEEN = () -> SeenSet.window(8);
+
+    private final StateCodec.KeyMode keyMode;
+    private final boolean foldMirror;
+    private final ExecutorService executor;   // 为 null 时每次求解自建线程池
+    private final int threads;
+    private final Supplier<SeenSet> seenPolicy;   // 每次求解新建一个去重表
+    private final int width;
+    private final int maxDepth;
+
+    public BeamSolver() {
+        this(StateCodec.KeyMode.SHAPE, false);
+    }
+
+    // 镜像折叠只影响 seen 里的键，beam 里保留的仍是真实状态
+    public BeamSolver(StateCodec.KeyMode keyMode, boolean foldMirror) {
+        this(keyMode, foldMirror, null, THREAD_COUNT);
+    }
+
+    /** executor 可以是多个求解共用的线程池，此时求解结束后不会关闭它 */
+    public BeamSolver(StateCodec.KeyMode keyMode, boolean foldMirror, ExecutorService executor, int threads) {
+        this(keyMode, foldMirror, executor, threads, DEFAULT_SEEN);
+    }
+
+    /** seenPolicy 决定去重表的内存上限，见 {@link SeenSet} */
+    public BeamSolver(StateCodec.KeyMode keyMode, boolean foldMirror, ExecutorService executor, int threads,
+                      Supplier<SeenSet> seenPolicy) {
+        this(keyMode, foldMirror, executor, threads, seenPolicy, BEAM_WIDTH, MAX_DEPTH);
+    }
+
+    /** width：每层保留的状态数；maxDepth：超过这个深度还没到终点就放弃 */
+    public BeamSolver(StateCodec.KeyMode keyMode, boolean foldMirror, ExecutorService executor, int threads,
+                      Supplier<SeenSet> seenPolicy, int width, int maxDepth) {
+        this.keyMode = keyMode;
+        this.foldMirror = foldMirror;
+        this.executor = executor;
+        this.threads = Math.max(1, threads);
+        this.seenPolicy = seenPolicy;
+        this.width = Math.max(1, width);
+        this.maxDepth = maxDepth;
+    }
+
+    @Override
+    public SolveResult solve(SolveRequest request) {
+        Board board = request.getBoard();
+        StateCodec codec = StateCodec.of(board, keyMode, foldMirror);
+        if (codec.caoIndex() == -1) {
+            System.out.println("未找到曹操方块！");
+            return SolveResult.none(0);
+        }
+        ExecutorService pool = executor != null ? executor
+                : threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+        try {
+            return search(codec, request, pool);
+        } catch (InterruptedException | ExecutionException e) {
+            e.printStackTrace();
+            return SolveResult.none(0);
+        } finally {
+            if (executor == null && pool != null) pool.shutdownNow();
         }
+    }
 
-        State start = State.fromBoard();
+    private SolveResult search(StateCodec codec, SolveRequest request, ExecutorService pool)
+            throws InterruptedException, ExecutionException {
+        MoveModel model = request.getMoveModel();
+        long expanded = 0;
+        long packed = codec.encode(request.getBoard());
+        State start = new State(0, heuristic(codec, packed, model), packed, null, -1);
         List<State> beam = new ArrayList<>();
         beam.add(start);
-        Set<String> seen = new HashSet<>();
-        seen.add(start.key());
+        SeenSet seen = seenPolicy.get();
+        seen.add(codec.key(start.packed));
+        State closest = start;   // 预算用完时返回通往它的部分路径
+
+        Candidates[] buffers = new Candidates[pool == null ? 1 : threads];
+        for (int i = 0; i < buffers.length; i++) buffers[i] = new Candidates(codec.cells());
+        long[] order = new long[0];
+        int[] offsets = new int[buffers.length + 1]; // 各段候选在合并序号里的起点
 
-        for (int depth = 0; depth <= MAX_DEPTH; depth++) {
-            List<State> nextLayer = new ArrayList<>();
+        boolean truncated = false;   // 有没有哪一层因为宽度限制丢过状态
+
+        for (int depth = 0; depth <= maxDepth; depth++) {
             for (State s : beam) {
                 if (s.h == 0) {
                     System.out.println("Found solution at depth=" + depth + ", path length=" + s.g);
-                    return s.buildPath();
+                    // 从没丢过状态时 beam 就是完整的 BFS，第一次碰到终点的深度就是最短步数
+                    return new SolveResult(s.buildPath(codec), !truncated && !seen.mayDropUnseen(), expanded);
                 }
-                for (int idx = 0; idx < blocks.size(); idx++) {
-                    for (Board.Direction dir : Board.Direction.values()) {
-                        if (!s.canMove(idx, dir)) continue;
-                        State ns = s.move(idx, dir);
-                        if (seen.add(ns.key())) {
-                            nextLayer.add(ns);
-                        }
-                    }
+                if (s.h < closest.h) closest = s;
+            }
+
+            // 分段展开：每段只读 seen 做预过滤，各写各的缓冲区
+            int chunks = pool == null || beam.size() < PARALLEL_MIN ? 1 : buffers.length;
+            int per = (beam.size() + chunks - 1) / chunks;
+            List<Future<Boolean>> futures = new ArrayList<>(chunks);
+            boolean outOfBudget = false;
+            for (int c = 0; c < chunks; c++) {
+                final int from = c * per, to = Math.min(beam.size(), from + per);
+                final Candidates out = buffers[c];
+                final long before = expanded + from;
+                final List<State> layer = beam;
+                if (chunks == 1) {
+                    outOfBudget = !expand(codec, model, request, layer, from, to, seen, out, before);
+                } else {
+                    futures.add(pool.submit(() -> expand(codec, model, request, layer, from, to, seen, out, before)));
+                }
+            }
+            for (Future<Boolean> f : futures) {
+                if (!f.get()) outOfBudget = true;
+            }
+            expanded += beam.size();
+            if (outOfBudget) {
+                System.out.println("Beam search out of budget at depth=" + depth);
+                return SolveResult.partial(closest.buildPath(codec), expanded);
+            }
+
+            // 按段的顺序合并去重；排序键 = h << 32 | 合并序号（段的起点 + 段内序号），h 相同的保持生成顺序。
+            // 合并序号是 int，不会像固定位宽的段内序号那样在单段候选很多时溢出到别的字段
+            int total = 0;
+            for (int c = 0; c < chunks; c++) {
+                offsets[c] = total;
+                total += buffers[c].size;
+            }
+            offsets[chunks] = total;
+            if (order.length < total) order = new long[Math.max(total, order.length * 2)];
+            int n = 0;
+            for (int c = 0; c < chunks; c++) {
+                Candidates cand = buffers[c];
+                for (int i = 0; i < cand.size; i++) {
+                    if (seen.add(cand.key[i])) order[n++] = (long) cand.h[i] << 32 | offsets[c] + i;
                 }
             }
-            if (nextLayer.isEmpty()) break;
-            //  f=g+h 򣬱ǰ W
-            nextLayer.sort(Comparator.comparingInt(a -> a.g + a.h));
-            beam.clear();
-            for (int i = 0; i < Math.min(BEAM_WIDTH, nextLayer.size()); i++) {
-                beam.add(nextLayer.get(i));
+            seen.nextLayer();
+            if (n == 0) break;
+
+            // 快速选择前 W 个，再只对这 W 个排序
+            int keep = Math.min(width, n);
+            if (keep < n) {
+                selectSmallest(order, n, keep);
+                truncated = true;
+            }
+            Arrays.sort(order, 0, keep);
+            List<State> next = new ArrayList<>(keep);
+            for (int i = 0; i < keep; i++) {
+                int pos = (int) order[i];
+                int c = chunkOf(offsets, chunks, pos);
+                Candidates cand = buffers[c];
+                int j = pos - offsets[c];
+                next.add(new State(depth + 1, cand.h[j], cand.packed[j], beam.get(cand.parent[j]), cand.block[j]));
             }
+            beam = next;
             System.out.println("Beam depth: " + depth + ", beam size: " + beam.size());
         }
+        if (!truncated && !seen.mayDropUnseen()) {
+            // 没丢过状态：这是一次完整的 BFS，maxDepth 以内确实没有解
+            System.out.println("Beam search exhausted: no solution within depth " + maxDepth);
+            return SolveResult.noSolutionWithin(closest.buildPath(codec), expanded);
+        }
         System.out.println("Beam search failed after max depth.");
-        return Collections.emptyList();
+        return SolveResult.partial(closest.buildPath(codec), expanded);
     }
 
-    private static class State {
-        final int g;                   // ߲
-        final int h;                   // ֵ
-        final int[][] grid;
-        final List<List<Point>> cells;
-        final State parent;
-        final MoveInfo move;
-
-        private State(int g, int[][] grid, List<List<Point>> cells, State parent, MoveInfo move) {
-            this.g = g;
-            this.grid = grid;
-            this.cells = cells;
-            this.parent = parent;
-            this.move = move;
-            this.h = calcHeuristic();
-        }
-
-        static State fromBoard() {
-            int[][] g0 = new int[R][C];
-            for (int[] row : g0) Arrays.fill(row, -1);
-            List<List<Point>> c0 = new ArrayList<>();
-            for (int i = 0; i < blocks.size(); i++) c0.add(new ArrayList<>());
-            for (int i = 0; i < blocks.size(); i++) {
-                Block b = blocks.get(i);
-                for (int dy = 0; dy < b.getHeight(); dy++) {
-                    for (int dx = 0; dx < b.getWidth(); dx++) {
-                        int x = b.getX() + dx;
-                        int y = b.getY() + dy;
-                        g0[y][x] = i;
-                        c0.get(i).add(new Point(x, y));
-                    }
+    // 展开 layer[from, to)，已在 seen 里的直接丢掉；预算用完返回 false
+    private static boolean expand(StateCodec codec, MoveModel model, SolveRequest request, List<State> layer,
+                                  int from, int to, SeenSet seen, Candidates out, long expandedBefore) {
+        out.size = 0;
+        long[] buf = out.buf;
+        for (int i = from; i < to; i++) {
+            if (request.exhausted(expandedBefore + i - from)) return false;
+            State s = layer.get(i);
+            int occ = codec.occupancy(s.packed);
+            for (int idx = 0; idx < codec.blockCount(); idx++) {
+                if (model == MoveModel.SLIDE && idx == s.blockIndex) continue;
+                int n = codec.successors(s.packed, occ, idx, model, buf);
+                for (int k = 0; k < n; k++) {
+                    long key = codec.key(buf[k]);
+                    if (!seen.contains(key)) out.add(buf[k], key, heuristic(codec, buf[k], model), i, idx);
                 }
             }
-            return new State(0, g0, c0, null, null);
         }
+        return true;
+    }
 
-        private int calcHeuristic() {
-            List<Point> caoCells = cells.get(caoIdx);
-            int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
-            for (Point p : caoCells) {
-                minX = Math.min(minX, p.x);
-                minY = Math.min(minY, p.y);
-            }
-            int dist = Math.abs(minY - EXIT_R) + Math.abs(minX - EXIT_C);
-            int blockCnt = 0;
-            for (int y = minY; y < EXIT_R; y++) {
-                int occ = grid[y][EXIT_C];
-                if (occ != -1 && occ != caoIdx) blockCnt++;
-            }
-            return dist + blockCnt * BLOCKER_PENALTY;
+    // 合并序号 pos 属于哪一段：start[c] <= pos < start[c + 1]，段数很少，直接二分
+    private static int chunkOf(int[] start, int chunks, int pos) {
+        int lo = 0, hi = chunks - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (start[mid] <= pos) lo = mid;
+            else hi = mid - 1;
         }
+        return lo;
+    }
 
-        boolean canMove(int idx, Board.Direction dir) {
-            int dx = 0, dy = 0;
-            switch (dir) {
-                case UP -> dy = -1;
-                case DOWN -> dy = 1;
-                case LEFT -> dx = -1;
-                case RIGHT -> dx = 1;
-            }
-            for (Point p : cells.get(idx)) {
-                int nx = p.x + dx, ny = p.y + dy;
-                if (nx < 0 || nx >= C || ny < 0 || ny >= R) return false;
-                int occ = grid[ny][nx];
-                if (occ != -1 && occ != idx) return false;
+    /** 重排 a[0, n)，使最小的 k 个落在 a[0, k)（顺序不定），期望 O(n) */
+    static void selectSmallest(long[] a, int n, int k) {
+        int lo = 0, hi = n - 1;
+        while (lo < hi) {
+            // 三数取中做枢轴，避免已经有序的输入退化
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] < a[lo]) swap(a, mid, lo);
+            if (a[hi] < a[lo]) swap(a, hi, lo);
+            if (a[hi] < a[mid]) swap(a, hi, mid);
+            long pivot = a[mid];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (a[i] < pivot) i++;
+                while (a[j] > pivot) j--;
+                if (i <= j) swap(a, i++, j--);
             }
-            return true;
+            if (k - 1 <= j) hi = j;
+            else if (k - 1 >= i) lo = i;
+            else return;
         }
+    }
 
-        State move(int idx, Board.Direction dir) {
-            int dx = 0, dy = 0;
-            switch (dir) {
-                case UP -> dy = -1;
-                case DOWN -> dy = 1;
-                case LEFT -> dx = -1;
-                case RIGHT -> dx = 1;
-            }
-            int gNew = g + 1;
-            int[][] ng = new int[R][C];
-            for (int y = 0; y < R; y++) System.arraycopy(grid[y], 0, ng[y], 0, C);
-            List<List<Point>> nc = new ArrayList<>();
-            for (List<Point> lst : cells) {
-                List<Point> cp = new ArrayList<>();
-                for (Point p : lst) cp.add(new Point(p));
-                nc.add(cp);
-            }
-            for (Point p : nc.get(idx)) ng[p.y][p.x] = -1;
-            for (Point p : nc.get(idx)) {
-                int nx = p.x + dx, ny = p.y + dy;
-                ng[ny][nx] = idx;
-            }
-            for (Point p : nc.get(idx)) p.translate(dx, dy);
-            return new State(gNew, ng, nc, this, new MoveInfo(idx, dir));
+    private static void swap(long[] a, int i, int j) {
+        long t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+    }
+
+    /** 一个线程的候选子状态，按生成顺序存成几个平行数组，跨层复用 */
+    private static class Candidates {
+        final long[] buf;
+        long[] packed = new long[1024];
+        long[] key = new long[1024];
+        int[] h = new int[1024];
+        int[] parent = new int[1024];   // 父状态在当前 beam 里的下标
+        int[] block = new int[1024];
+        int size;
+
+        Candidates(int cells) {
+            buf = new long[cells];
         }
 
-        String key() {
-            StringBuilder sb = new StringBuilder(R * C);
-            for (int[] row : grid) {
-                for (int v : row) sb.append((char) (v + 1));
-                sb.append('|');
+        void add(long p, long k, int hv, int par, int blk) {
+            if (size == packed.length) {
+                int len = size * 2;
+                packed = Arrays.copyOf(packed, len);
+                key = Arrays.copyOf(key, len);
+                h = Arrays.copyOf(h, len);
+                parent = Arrays.copyOf(parent, len);
+                block = Arrays.copyOf(block, len);
             }
-            return sb.toString();
+            packed[size] = p;
+            key[size] = k;
+            h[size] = hv;
+            parent[size] = par;
+            block[size] = blk;
+            size++;
+        }
+    }
+
+    private static int heuristic(StateCodec codec, long packed, MoveModel model) {
+        int dist = codec.lowerBound(packed, model);
+        int blockCnt = codec.caoBlockers(packed, codec.occupancy(packed));
+        return dist + blockCnt * BLOCKER_PENALTY;
+    }
+
+    private static class State {
+        final int g;                   // 已走步数
+        final int h;                   // 启发值
+        final long packed;
+        final State parent;
+        final int blockIndex;
+
+        private State(int g, int h, long packed, State parent, int blockIndex) {
+            this.g = g;
+            this.h = h;
+            this.packed = packed;
+            this.parent = parent;
+            this.blockIndex = blockIndex;
         }
 
-        List<MoveInfo> buildPath() {
+        List<MoveInfo> buildPath(StateCodec codec) {
             LinkedList<MoveInfo> path = new LinkedList<>();
             for (State s = this; s.parent != null; s = s.parent) {
-                path.addFirst(s.move);
+                path.addFirst(codec.moveBetween(s.parent.packed, s.packed));
             }
             return path;
         }
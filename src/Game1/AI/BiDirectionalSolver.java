@@ -1,191 +1,223 @@
 package Game1.AI;
 
 import Game1.models.Board;
-import Game1.models.Block;
 
-import java.awt.Point;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Ż˫ BFS 
- * - Ԥʱ Board ʵ
- * - 淽
- * -  blocksSize repeated 
- * - ʵʱӡչڵǰȡдС
+ * 双向 BFS 求解器：
+ * - 状态用 StateCodec 压缩成 long，直接用位运算生成走法
+ * - 反向搜索从所有合法的终点状态一起出发（StateCodec.goalStates），相遇检测用键
+ * - 每一轮前后两端各扩展一层，在两个线程上同时进行；轮次的交替仍由 solve 控制，
+ *   某一端比另一端大太多时这一轮只扩展小的一端
+ * - 每轮结束后把两端新加入的状态和对面的访问表对一遍，取深度和最小的相遇点，所以返回的一定是最短解
  */
-public class BiDirectionalSolver {
+public class BiDirectionalSolver implements Solver {
     private static final int MAX_DEPTH = 200;
-
-    // 飬 Board.Direction ˳һ
-    private static final Board.Direction[] DIRS = Board.Direction.values();
-    private static final int[] DX = { 0, 0, -1, 1 }; // UP, DOWN, LEFT, RIGHT
-    private static final int[] DY = { -1, 1, 0, 0 };
+    private static final int IMBALANCE = 8;   // 一端的队列超过另一端的这么多倍时，只扩展小的一端
 
     private static class StateNode {
-        final List<Point> pos;
+        final long state;  // 压缩后的真实状态
+        final long key;    // 去重用的键
         final StateNode parent;
-        final MoveInfo move;
         final int depth;
-        final String key;  // Ԥãظ
 
-        StateNode(List<Point> pos, StateNode parent, MoveInfo move, int depth) {
-            this.pos = pos;
+        StateNode(long state, long key, StateNode parent, int depth) {
+            this.state = state;
+            this.key = key;
             this.parent = parent;
-            this.move = move;
             this.depth = depth;
-            this.key = buildKey(pos);
-        }
-
-        private static String buildKey(List<Point> pList) {
-            StringBuilder sb = new StringBuilder(pList.size() * 2);
-            for (Point p : pList) {
-                sb.append((char) ('A' + p.x)).append((char) ('A' + p.y));
-            }
-            return sb.toString();
         }
 
-        List<MoveInfo> buildPath() {
+        // 走法只在还原路径时才从前后两个状态推出来
+        List<MoveInfo> buildPath(StateCodec codec) {
             LinkedList<MoveInfo> path = new LinkedList<>();
             StateNode cur = this;
             while (cur.parent != null) {
-                path.addFirst(cur.move);
+                path.addFirst(codec.moveBetween(cur.parent.state, cur.state));
                 cur = cur.parent;
             }
             return path;
         }
     }
 
-    public static List<MoveInfo> solve(Board board) {
-        List<Block> blocks = board.getBlocks();
-        int n = blocks.size();
-
-        // 1.  start/goal positions
-        List<Point> startPos = new ArrayList<>(n);
-        for (Block b : blocks) startPos.add(new Point(b.getX(), b.getY()));
-        StateNode start = new StateNode(startPos, null, null, 0);
-
-        List<Point> goalPos = new ArrayList<>(n);
-        for (Block b : blocks) goalPos.add(new Point(b.getX(), b.getY()));
-        // Ѳܲٿŵ(1,3)
-        for (int i = 0; i < n; i++) if (blocks.get(i).getType() == Block.BlockType.CAO_CAO) {
-            goalPos.get(i).setLocation(1, 3);
-            break;
+    /** 一端的搜索：当前层队列 + 访问表（只有自己的线程写，对面的线程会读） */
+    private static class Side {
+        final String tag;
+        final Map<Long, StateNode> visited = new ConcurrentHashMap<>();
+        List<StateNode> frontier = new ArrayList<>();
+        int depth;
+
+        Side(String tag) {
+            this.tag = tag;
         }
-        StateNode goal = new StateNode(goalPos, null, null, 0);
 
-        // 2. ʼ¼
-        Deque<StateNode> front = new ArrayDeque<>(), back = new ArrayDeque<>();
-        Map<String, StateNode> visF = new HashMap<>(), visB = new HashMap<>();
-        front.add(start); visF.put(start.key, start);
-        back .add(goal ); visB.put( goal.key,  goal);
+        void add(StateNode n) {
+            visited.put(n.key, n);
+            frontier.add(n);
+        }
+    }
 
-        // 3. Ԥһʱ Board  canMove
-        Board tempBoard = new Board(board);
+    private final StateCodec.KeyMode keyMode;
+    private final boolean foldMirror;
 
-        int depth = 0;
-        long expandedF = 0, expandedB = 0;
+    public BiDirectionalSolver() {
+        this(StateCodec.KeyMode.SHAPE, false);
+    }
 
-        while (!front.isEmpty() && !back.isEmpty() && depth < MAX_DEPTH) {
-            depth++;
-            System.out.printf("Depth=%d, frontSize=%d, backSize=%d%n",
-                    depth, front.size(), back.size());
+    // 相遇检测同样用折叠后的键，后向路径重放时会自动走成镜像回来的走法
+    public BiDirectionalSolver(StateCodec.KeyMode keyMode, boolean foldMirror) {
+        this.keyMode = keyMode;
+        this.foldMirror = foldMirror;
+    }
+
+    @Override
+    public boolean guaranteesOptimal() {
+        return true;
+    }
 
-            // չСһ
-            if (front.size() <= back.size()) {
-                if (expand(front, visF, visB, blocks, tempBoard, ++expandedF, "F")) {
-                    return merge(visF, visB);
+    @Override
+    public SolveResult solve(SolveRequest request) {
+        Board board = request.getBoard();
+        StateCodec codec = StateCodec.of(board, keyMode, foldMirror);
+        if (codec.caoIndex() == -1) {
+            System.out.println("未找到曹操方块！");
+            return SolveResult.none(0);
+        }
+        MoveModel model = request.getMoveModel();
+
+        // 1. 前向从开局出发，反向从所有合法终点出发；键本身就是合法状态，可以直接展开
+        long startState = codec.encode(board);
+        Side front = new Side("F"), back = new Side("B");
+        front.add(new StateNode(startState, codec.key(startState), null, 0));
+        for (long goal : codec.goalStates()) back.add(new StateNode(goal, goal, null, 0));
+        System.out.printf("Goals=%d%n", back.frontier.size());
+
+        AtomicLong expanded = new AtomicLong();
+        boolean cutShort = false;   // 某一层因为预算没扩展完，这时的相遇点不一定最短
+        StateNode[] meet = findMeet(front.frontier, back.visited, front.visited, back.visited);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            // 2. 按轮交替：一般两端同时各扩展一层，悬殊时只扩展小的一端
+            while (meet == null && !front.frontier.isEmpty() && !back.frontier.isEmpty()
+                    && front.depth + back.depth < MAX_DEPTH) {
+                if (request.exhausted(expanded.get())) {
+                    System.out.printf("Out of budget: expanded=%d%n", expanded.get());
+                    return SolveResult.partial(closest(front.visited, codec).buildPath(codec), expanded.get());
                 }
-            } else {
-                if (expand(back, visB, visF, blocks, tempBoard, ++expandedB, "B")) {
-                    return merge(visF, visB);
+                int fs = front.frontier.size(), bs = back.frontier.size();
+                System.out.printf("DepthF=%d, DepthB=%d, frontSize=%d, backSize=%d%n",
+                        front.depth, back.depth, fs, bs);
+
+                List<Side> sides = new ArrayList<>(2);
+                if (fs <= (long) bs * IMBALANCE) sides.add(front);
+                if (bs <= (long) fs * IMBALANCE) sides.add(back);
+                List<Future<Boolean>> futures = new ArrayList<>(2);
+                for (Side s : sides) {
+                    futures.add(pool.submit(() -> expand(s, codec, request, model, expanded)));
                 }
+                for (Future<Boolean> f : futures) {
+                    if (!f.get()) cutShort = true;
+                }
+
+                // 3. 新加入的状态和对面整个访问表比对（两端都是旧状态的组合前几轮已经比过了）
+                StateNode[] a = sides.contains(front)
+                        ? findMeet(front.frontier, back.visited, front.visited, back.visited) : null;
+                StateNode[] b = sides.contains(back)
+                        ? findMeet(back.frontier, front.visited, front.visited, back.visited) : null;
+                meet = better(a, b);
             }
+        } catch (InterruptedException | ExecutionException e) {
+            e.printStackTrace();
+            return SolveResult.none(expanded.get());
+        } finally {
+            pool.shutdownNow();
         }
 
-        System.out.printf("Fail: expandedF=%d, expandedB=%d%n", expandedF, expandedB);
-        return Collections.emptyList();
+        if (meet == null) {
+            System.out.printf("Fail: expanded=%d%n", expanded.get());
+            return SolveResult.partial(closest(front.visited, codec).buildPath(codec), expanded.get());
+        }
+        System.out.println("Meet at depth=" + meet[0].depth + "+" + meet[1].depth);
+        return new SolveResult(merge(meet[0], meet[1], codec, model), !cutShort, expanded.get());
     }
 
-    private static boolean expand(Deque<StateNode> queue,
-                                  Map<String, StateNode> selfVis,
-                                  Map<String, StateNode> otherVis,
-                                  List<Block> blocks,
-                                  Board tempBoard,
-                                  long expandedCount,
-                                  String tag) {
-        int layerSize = queue.size();
-        for (int k = 0; k < layerSize; k++) {
-            StateNode cur = queue.poll();
-
-            // 
-            if (expandedCount <= 10 || expandedCount % 1000 == 0) {
-                System.out.printf("[%s] expanded=%d, depth=%d, queue=%d%n",
-                        tag, expandedCount, cur.depth, queue.size());
-            }
+    // 前向搜索到过的、曹操离出口最近的状态
+    private static StateNode closest(Map<Long, StateNode> visF, StateCodec codec) {
+        StateNode best = null;
+        for (StateNode n : visF.values()) {
+            if (best == null || codec.caoDistance(n.state) < codec.caoDistance(best.state)) best = n;
+        }
+        return best;
+    }
 
-            // ָ tempBoard  cur.pos
-            for (int i = 0; i < blocks.size(); i++) {
-                Point p = cur.pos.get(i);
-                tempBoard.getBlocks().get(i).setPosition(p.x, p.y);
+    // 扩展一整层：新状态替换掉 side.frontier；预算用完没扩展完时返回 false
+    private static boolean expand(Side side, StateCodec codec, SolveRequest request,
+                                  MoveModel model, AtomicLong expanded) {
+        List<StateNode> next = new ArrayList<>();
+        long[] buf = new long[codec.cells()];
+        boolean complete = true;
+        for (StateNode cur : side.frontier) {
+            long count = expanded.incrementAndGet();
+            if (request.exhausted(count)) {
+                complete = false;
+                break;
+            }
+            if (count <= 10 || count % 1000 == 0) {
+                System.out.printf("[%s] expanded=%d, depth=%d, queue=%d%n",
+                        side.tag, count, cur.depth, next.size());
             }
 
-            // ƶÿ
-            for (int i = 0; i < blocks.size(); i++) {
-                for (int d = 0; d < DIRS.length; d++) {
-                    if (!tempBoard.canMove(tempBoard.getBlocks().get(i), DIRS[d])) continue;
-
-                    // λб
-                    List<Point> np = new ArrayList<>(cur.pos.size());
-                    for (Point p : cur.pos) np.add(new Point(p));
-
-                    // ƶ i 
-                    np.get(i).translate(DX[d], DY[d]);
-
-                    StateNode next = new StateNode(np, cur, new MoveInfo(i, DIRS[d]), cur.depth + 1);
-                    if (selfVis.containsKey(next.key)) continue;
-                    selfVis.put(next.key, next);
-
-                    if (otherVis.containsKey(next.key)) {
-                        System.out.println("Meet at depth=" + next.depth);
-                        return true;
-                    }
-                    queue.add(next);
+            int occ = codec.occupancy(cur.state);
+            for (int i = 0; i < codec.blockCount(); i++) {
+                int n = codec.successors(cur.state, occ, i, model, buf);
+                for (int j = 0; j < n; j++) {
+                    long nextKey = codec.key(buf[j]);
+                    if (side.visited.containsKey(nextKey)) continue;
+                    StateNode node = new StateNode(buf[j], nextKey, cur, cur.depth + 1);
+                    side.visited.put(nextKey, node);
+                    next.add(node);
                 }
             }
         }
-        return false;
+        side.frontier = next;
+        side.depth++;
+        return complete;
     }
 
-    private static List<MoveInfo> merge(Map<String, StateNode> visF,
-                                        Map<String, StateNode> visB) {
-        for (Map.Entry<String, StateNode> e : visF.entrySet()) {
-            String key = e.getKey();
-            if (visB.containsKey(key)) {
-                StateNode midF = e.getValue(), midB = visB.get(key);
-
-                // ǰ·
-                List<MoveInfo> p1 = midF.buildPath();
-                // ·򡢷
-                List<MoveInfo> p2 = midB.buildPath();
-                Collections.reverse(p2);
-                for (int i = 0; i < p2.size(); i++) {
-                    MoveInfo mv = p2.get(i);
-                    p2.set(i, new MoveInfo(mv.blockIndex, opposite(mv.direction)));
-                }
-                p1.addAll(p2);
-                System.out.println("Total depth=" + p1.size());
-                return p1;
-            }
+    // nodes 里和 other 相遇的状态中，前后深度和最小的一对 {前向节点, 后向节点}
+    private static StateNode[] findMeet(List<StateNode> nodes, Map<Long, StateNode> other,
+                                        Map<Long, StateNode> visF, Map<Long, StateNode> visB) {
+        StateNode[] best = null;
+        for (StateNode n : nodes) {
+            if (!other.containsKey(n.key)) continue;
+            StateNode[] pair = {visF.get(n.key), visB.get(n.key)};
+            best = better(best, pair);
         }
-        return Collections.emptyList();
+        return best;
+    }
+
+    private static StateNode[] better(StateNode[] a, StateNode[] b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        return b[0].depth + b[1].depth < a[0].depth + a[1].depth ? b : a;
     }
 
-    private static Board.Direction opposite(Board.Direction d) {
-        switch (d) {
-            case UP:    return Board.Direction.DOWN;
-            case DOWN:  return Board.Direction.UP;
-            case LEFT:  return Board.Direction.RIGHT;
-            default:    return Board.Direction.LEFT;
+    private static List<MoveInfo> merge(StateNode midF, StateNode midB, StateCodec codec, MoveModel model) {
+        // 前向路径
+        List<MoveInfo> path = midF.buildPath(codec);
+        // 后向路径：两边在键上相遇时方块下标未必一致，
+        // 所以沿后向链按键逐步重放，得到真实的方块下标
+        long cur = midF.state;
+        for (StateNode b = midB.parent; b != null; b = b.parent) {
+            MoveInfo mv = codec.moveToward(cur, b.key, model);
+            if (mv == null) return Collections.emptyList();
+            path.add(mv);
+            cur = codec.apply(cur, mv);
         }
+        System.out.println("Total depth=" + path.size());
+        return path;
     }
 }
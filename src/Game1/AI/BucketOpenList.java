@@ -0,0 +1,90 @@
+package Game1.AI;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 按 f 值分桶的并发 open 表，代替 PriorityBlockingQueue。
+ * - f 是不大的整数，每个 f 一个桶，入队出队都是 O(1)
+ * - 每个桶再按线程分条，线程优先取自己那条（后进先出，同 f 时偏向更深的状态），
+ *   自己的空了再从别的条里偷，避免所有线程抢同一把锁
+ * - minF 是单调前进的最小 f 游标，只有插入更小的 f 时才回退
+ */
+public class BucketOpenList<T> {
+    public static final int MAX_F = 1024;   // 超过的都放进最后一个桶
+
+    private final int stripes;
+    private final AtomicReferenceArray<ConcurrentLinkedDeque<T>[]> buckets =
+            new AtomicReferenceArray<>(MAX_F);
+    private final AtomicInteger minF = new AtomicInteger(MAX_F);
+    private final AtomicInteger size = new AtomicInteger();
+
+    public BucketOpenList(int stripes) {
+        this.stripes = Math.max(1, stripes);
+    }
+
+    public void offer(T item, int f, int stripe) {
+        f = Math.min(Math.max(f, 0), MAX_F - 1);
+        bucket(f)[stripe % stripes].addLast(item);
+        size.incrementAndGet();
+        minF.accumulateAndGet(f, Math::min);
+    }
+
+    /** 取出当前最小 f 的一个元素，没有时返回 null（不阻塞） */
+    public T poll(int stripe) {
+        int own = stripe % stripes;
+        for (int f = minF.get(); f < MAX_F; f++) {
+            ConcurrentLinkedDeque<T>[] row = buckets.get(f);
+            if (row != null) {
+                T item = row[own].pollLast();
+                for (int k = 1; item == null && k < stripes; k++) {
+                    item = row[(own + k) % stripes].pollFirst();
+                }
+                if (item != null) {
+                    size.decrementAndGet();
+                    return item;
+                }
+            }
+            // 这一层空了，游标前进；若前进的同时有人插入了 f，再退回来。
+            // 前进之后要重新读桶：读到 null 之后别人可能刚建好这个桶并插入，
+            // 而那次插入的 accumulateAndGet 看到的 minF 还是 f，不会替我们退回
+            if (minF.compareAndSet(f, f + 1)) {
+                ConcurrentLinkedDeque<T>[] now = buckets.get(f);
+                if (now != null && !isEmpty(now)) minF.accumulateAndGet(f, Math::min);
+            }
+        }
+        return null;
+    }
+
+    /** 当前最小 f 的下界，open 表为空时为 MAX_F */
+    public int minF() {
+        return minF.get();
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public boolean isEmpty() {
+        return size.get() == 0;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private ConcurrentLinkedDeque<T>[] bucket(int f) {
+        ConcurrentLinkedDeque<T>[] row = buckets.get(f);
+        if (row == null) {
+            row = new ConcurrentLinkedDeque[stripes];
+            for (int i = 0; i < stripes; i++) row[i] = new ConcurrentLinkedDeque<>();
+            if (!buckets.compareAndSet(f, null, row)) row = buckets.get(f);
+        }
+        return row;
+    }
+
+    private boolean isEmpty(ConcurrentLinkedDeque<T>[] row) {
+        for (ConcurrentLinkedDeque<T> d : row) {
+            if (!d.isEmpty()) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,225 @@
+package Game1.AI;
+
+import Game1.models.Board;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 哈希分布式并行 A*（HDA*）：
+ * - 每个状态按键的哈希归属一个线程，open 表和 closed 表都是线程私有的，不需要加锁
+ * - 生成的子状态投递到归属线程的无锁邮箱（ConcurrentLinkedQueue）
+ * - pending 计数“已投递但还没处理完”的状态，归零时说明所有邮箱和 open 表都空了，
+ *   此时当前最优解一定是最优的（只剪掉 f >= 当前最优解长度的状态）
+ * - STEP / SLIDE 两种走法模型都支持；启发值和 AStarSolver 相同，STEP 下查模式数据库
+ */
+public class HdaStarSolver implements Solver {
+    private static final int THREAD_COUNT = Runtime.getRuntime().availableProcessors();
+
+    private final StateCodec.KeyMode keyMode;
+    private final boolean foldMirror;
+    private final int threads;
+
+    public HdaStarSolver() {
+        this(StateCodec.KeyMode.SHAPE, false, THREAD_COUNT);
+    }
+
+    /**
+     * 每个线程独占自己名下的状态，必须同时运行，所以这里总是自建 threads 个线程，
+     * 不接受外部线程池（线程不够时邮箱没人处理，会一直等下去）。
+     */
+    public HdaStarSolver(StateCodec.KeyMode keyMode, boolean foldMirror, int threads) {
+        this.keyMode = keyMode;
+        this.foldMirror = foldMirror;
+        this.threads = Math.max(1, threads);
+    }
+
+    @Override
+    public boolean guaranteesOptimal() {
+        return true;
+    }
+
+    @Override
+    public SolveResult solve(SolveRequest request) {
+        Board board = request.getBoard();
+        StateCodec codec = StateCodec.of(board, keyMode, foldMirror);
+        if (codec.caoIndex() == -1) {
+            System.out.println("未找到曹操方块！");
+            return SolveResult.none(0);
+        }
+        Search search = new Search(codec, request, threads);
+        return search.run(codec.encode(board));
+    }
+
+    private static class Node {
+        final long state;
+        final int g, f;
+        final Node parent;
+        final int blockIndex;
+
+        Node(long state, int g, int h, Node parent, int blockIndex) {
+            this.state = state;
+            this.g = g;
+            this.f = g + h;
+            this.parent = parent;
+            this.blockIndex = blockIndex;
+        }
+    }
+
+    private static class Search {
+        final StateCodec codec;
+        final int workers;
+        final List<Queue<Node>> mailboxes = new ArrayList<>();
+        final AtomicLong pending = new AtomicLong();
+        final AtomicReference<Node> bestNode = new AtomicReference<>();
+        final AtomicLong expanded = new AtomicLong();
+        final AtomicReference<Node> closest = new AtomicReference<>();   // h 最小的已扩展状态
+        final SolveRequest request;
+        final MoveModel model;
+        final PatternDatabase pdb;
+        volatile boolean done;
+        volatile boolean outOfBudget;
+
+        Search(StateCodec codec, SolveRequest request, int workers) {
+            this.codec = codec;
+            this.request = request;
+            this.model = request.getMoveModel();
+            this.pdb = model == MoveModel.STEP ? PatternDatabase.of(request.getBoard()) : null;
+            this.workers = Math.max(1, workers);
+            for (int i = 0; i < this.workers; i++) mailboxes.add(new ConcurrentLinkedQueue<>());
+        }
+
+        int bestCost() {
+            Node best = bestNode.get();
+            return best == null ? Integer.MAX_VALUE : best.g;
+        }
+
+        int estimate(long state) {
+            return pdb != null ? pdb.estimate(state) : codec.lowerBound(state, model);
+        }
+
+        int owner(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) ((h ^ (h >>> 32)) & 0x7FFFFFFF) % workers;
+        }
+
+        SolveResult run(long start) {
+            pending.incrementAndGet();
+            mailboxes.get(owner(codec.key(start))).add(new Node(start, 0, estimate(start), null, -1));
+
+            ExecutorService executor = Executors.newFixedThreadPool(workers);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < workers; i++) {
+                final int id = i;
+                futures.add(executor.submit(() -> work(id)));
+            }
+            try {
+                for (Future<?> f : futures) f.get();
+            } catch (InterruptedException | ExecutionException e) {
+                e.printStackTrace();
+                return SolveResult.none(expanded.get());
+            } finally {
+                done = true;
+                executor.shutdownNow();
+            }
+
+            Node best = bestNode.get();
+            System.out.printf("HDA*: expanded=%d, cost=%d%n", expanded.get(), best == null ? -1 : best.g);
+            if (best == null) {
+                Node near = closest.get();
+                return SolveResult.partial(near == null ? Collections.emptyList() : buildPath(near), expanded.get());
+            }
+            return new SolveResult(buildPath(best), !outOfBudget, expanded.get());
+        }
+
+        private List<MoveInfo> buildPath(Node node) {
+            LinkedList<MoveInfo> path = new LinkedList<>();
+            for (Node n = node; n.parent != null; n = n.parent) {
+                path.addFirst(codec.moveBetween(n.parent.state, n.state));
+            }
+            return path;
+        }
+
+        void work(int id) {
+            Queue<Node> mailbox = mailboxes.get(id);
+            PriorityQueue<Node> open = new PriorityQueue<>(
+                    Comparator.<Node>comparingInt(n -> n.f).thenComparingInt(n -> -n.g));
+            Map<Long, Integer> closed = new HashMap<>();
+            long[] buf = new long[codec.cells()];
+
+            while (!done) {
+                if (request.exhausted(expanded.get())) {
+                    outOfBudget = true;
+                    done = true;
+                    break;
+                }
+                for (Node m = mailbox.poll(); m != null; m = mailbox.poll()) {
+                    receive(m, open, closed);
+                }
+
+                Node cur = open.poll();
+                if (cur == null) {
+                    if (pending.get() == 0) done = true;
+                    else Thread.onSpinWait();
+                    continue;
+                }
+
+                // 被更短的 g 取代过的旧条目，或者已经不可能比当前解更好
+                Integer bestG = closed.get(codec.key(cur.state));
+                if (bestG != null && bestG < cur.g || cur.f >= bestCost()) {
+                    pending.decrementAndGet();
+                    continue;
+                }
+
+                if (codec.isGoal(cur.state)) {
+                    offerSolution(cur);
+                    pending.decrementAndGet();
+                    continue;
+                }
+
+                expanded.incrementAndGet();
+                Node c = closest.get();
+                if (c == null || cur.f - cur.g < c.f - c.g) closest.compareAndSet(c, cur);
+                int occ = codec.occupancy(cur.state);
+                for (int idx = 0; idx < codec.blockCount(); idx++) {
+                    if (model == MoveModel.SLIDE && idx == cur.blockIndex) continue;
+                    int n = codec.successors(cur.state, occ, idx, model, buf);
+                    for (int k = 0; k < n; k++) {
+                        long next = buf[k];
+                        if (cur.parent != null && next == cur.parent.state) continue;
+                        Node child = new Node(next, cur.g + 1, estimate(next), cur, idx);
+                        if (child.f >= bestCost()) continue;
+
+                        pending.incrementAndGet();
+                        int to = owner(codec.key(next));
+                        if (to == id) receive(child, open, closed);
+                        else mailboxes.get(to).add(child);
+                    }
+                }
+                // 子状态都已计入 pending 之后才减掉自己，计数不会提前归零
+                pending.decrementAndGet();
+            }
+        }
+
+        private void receive(Node n, PriorityQueue<Node> open, Map<Long, Integer> closed) {
+            long key = codec.key(n.state);
+            Integer prev = closed.get(key);
+            if (prev != null && prev <= n.g) {
+                pending.decrementAndGet();
+                return;
+            }
+            closed.put(key, n.g);
+            open.add(n);
+        }
+
+        private void offerSolution(Node n) {
+            while (true) {
+                Node cur = bestNode.get();
+                if (cur != null && n.g >= cur.g) return;
+                if (bestNode.compareAndSet(cur, n)) return;
+            }
+        }
+    }
+}
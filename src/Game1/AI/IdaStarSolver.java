@@ -0,0 +1,251 @@
+package Game1.AI;
+
+import Game1.models.Board;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * IDA* 求解器：内存只和搜索深度、置换表大小有关，和状态数无关。
+ * - 状态用 StateCodec 压缩成 long，深度优先时只在每层的缓冲区里换来换去，不创建节点对象
+ * - 启发值和 AStarSolver 一样：STEP 查模式数据库，SLIDE 用 StateCodec.lowerBound
+ * - 固定大小、有损的置换表：同一轮迭代里以不更短的 g 再次到达的状态直接剪掉；
+ *   每轮失败后子树给出的“到终点至少还要几步”也记下来，后面几轮直接当启发值用。
+ *   槽位冲突时覆盖旧条目，最多是多搜一遍，不影响最优性
+ * - 子状态按启发值从小到大展开，最后一轮能更早碰到终点
+ */
+public class IdaStarSolver implements Solver {
+    public static final int DEFAULT_TABLE_BITS = 20;   // 2^20 个槽，约 13 MB
+
+    private static final int FOUND = -1;
+    private static final int INF = Integer.MAX_VALUE;
+    private static final int MAX_G = 0xFFF;
+
+    private final StateCodec.KeyMode keyMode;
+    private final boolean foldMirror;
+    private final int tableBits;
+
+    public IdaStarSolver() {
+        this(StateCodec.KeyMode.SHAPE, false, DEFAULT_TABLE_BITS);
+    }
+
+    /**
+     * tableBits：置换表有 2^tableBits 个槽（每槽 13 字节），决定了全部的额外内存。
+     * 槽数要大致盖住可达状态数，内置关卡 2^16 就够；再小的话第 1、2 关会退化到几千万次扩展。
+     */
+    public IdaStarSolver(StateCodec.KeyMode keyMode, boolean foldMirror, int tableBits) {
+        this.keyMode = keyMode;
+        this.foldMirror = foldMirror;
+        this.tableBits = Math.max(8, Math.min(tableBits, 28));
+    }
+
+    @Override
+    public boolean guaranteesOptimal() {
+        return true;
+    }
+
+    @Override
+    public SolveResult solve(SolveRequest request) {
+        Board board = request.getBoard();
+        StateCodec codec = StateCodec.of(board, keyMode, foldMirror);
+        if (codec.caoIndex() == -1) {
+            System.out.println("未找到曹操方块！");
+            return SolveResult.none(0);
+        }
+        return new Search(codec, request, tableBits).run(codec.encode(board));
+    }
+
+    private static class Search {
+        final StateCodec codec;
+        final SolveRequest request;
+        final MoveModel model;
+        final PatternDatabase pdb;
+
+        // 置换表：键、(迭代轮次 << 12 | g)、以前几轮学到的启发值下界；两个槽一组，冲突时覆盖
+        final long[] ttKeys;
+        final int[] ttInfo;
+        final byte[] ttH;
+        final int ttMask;
+        int iteration;
+        int nextBound;
+
+        // 当前路径，以及每一层的子状态缓冲区（按需加长，长度只和深度有关）
+        long[] path = new long[128];
+        int[] moved = new int[128];
+        long[][] children = new long[128][];
+        int[][] childH = new int[128][];
+        int[][] childBlock = new int[128][];
+
+        final long[] buf;
+        long expanded;
+        boolean outOfBudget;
+        int foundDepth = -1;
+        int closestH = INF;
+        long[] closestPath = new long[0];
+
+        Search(StateCodec codec, SolveRequest request, int tableBits) {
+            this.codec = codec;
+            this.request = request;
+            this.model = request.getMoveModel();
+            this.pdb = model == MoveModel.STEP ? PatternDatabase.of(request.getBoard()) : null;
+            ttKeys = new long[1 << tableBits];
+            ttInfo = new int[1 << tableBits];
+            ttH = new byte[1 << tableBits];
+            Arrays.fill(ttKeys, -1L);
+            ttMask = (1 << tableBits) - 1;
+            buf = new long[codec.cells()];
+        }
+
+        int estimate(long state) {
+            return pdb != null ? pdb.estimate(state) : codec.lowerBound(state, model);
+        }
+
+        SolveResult run(long start) {
+            path[0] = start;
+            moved[0] = -1;
+            int bound = estimate(start);
+            while (true) {
+                iteration++;
+                nextBound = INF;
+                boolean found = search(0, 0, estimate(start), bound) == FOUND;
+                System.out.printf("IDA*: bound=%d, expanded=%d%n", bound, expanded);
+                if (found) {
+                    return new SolveResult(toMoves(path, foundDepth), !outOfBudget, expanded);
+                }
+                if (outOfBudget || nextBound == INF) break;
+                bound = nextBound;
+            }
+            // 预算用完或无解：返回离终点最近的那条路径
+            if (closestPath.length == 0) return SolveResult.none(expanded);
+            return SolveResult.partial(toMoves(closestPath, closestPath.length - 1), expanded);
+        }
+
+        /**
+         * 返回 FOUND，或者 g + 该状态到终点真实距离的一个下界（本轮结束且没找到解时成立），
+         * 用来更新置换表里学到的启发值；下一轮的 bound 另外记在 nextBound 里。
+         */
+        private int search(int depth, int g, int h, int bound) {
+            long state = path[depth];
+            long key = codec.key(state);
+            int slot = LongByteMap.hash(key) & ttMask & ~1;
+            if (ttKeys[slot] != key) slot |= 1;
+            if (ttKeys[slot] == key) {
+                int info = ttInfo[slot];
+                // 本轮已经以不更长的路径到过这里，它的子树已经（或正在）搜过
+                if ((info >>> 12) == iteration) {
+                    if ((info & MAX_G) <= g && g < MAX_G) return bound + 1;
+                } else {
+                    h = Math.max(h, ttH[slot] & 0xFF);   // 之前几轮学到的下界
+                }
+            }
+            int f = g + h;
+            if (f > bound) {
+                if (f < nextBound) nextBound = f;
+                return f;
+            }
+            if (codec.isGoal(state)) {
+                foundDepth = depth;
+                return FOUND;
+            }
+            if ((++expanded & 1023) == 0 && request.exhausted(expanded)) outOfBudget = true;
+            if (outOfBudget) return INF;
+            if (h < closestH) {
+                closestH = h;
+                closestPath = Arrays.copyOf(path, depth + 1);
+            }
+            if (ttKeys[slot] != key) {
+                // 两路组相联：第一路只让给离根更近（g 更小）的状态，第二路谁来都覆盖；
+                // 靠近根的条目剪掉的子树大，表小的时候也不至于退化成普通 IDA*
+                slot &= ~1;
+                if (ttKeys[slot] != -1L && (ttInfo[slot] & MAX_G) < g) slot |= 1;
+                ttKeys[slot] = key;
+                ttH[slot] = 0;
+            }
+            ttInfo[slot] = iteration << 12 | Math.min(g, MAX_G);
+
+            int n = generate(depth, state);
+            long[] next = children[depth];
+            int[] hs = childH[depth];
+            int[] blocks = childBlock[depth];
+            int min = INF;
+            for (int k = 0; k < n; k++) {
+                path[depth + 1] = next[k];
+                moved[depth + 1] = blocks[k];
+                int t = search(depth + 1, g + 1, hs[k], bound);
+                if (t == FOUND) return FOUND;
+                if (t < min) min = t;
+            }
+            // 子树里超出 bound 的最小 f 减去 g，就是这个状态到终点距离的下界；
+            // 期间槽位可能已经被别的状态占了，那就不记
+            if (ttKeys[slot] == key && min != INF) {
+                ttH[slot] = (byte) Math.min(Math.max(ttH[slot] & 0xFF, min - g), 0xFF);
+            }
+            return min;
+        }
+
+        // 生成第 depth 层状态的子状态，去掉原路退回的，按启发值排好序
+        private int generate(int depth, long state) {
+            ensureDepth(depth + 1);
+            long parent = depth > 0 ? path[depth - 1] : StateCodec.ILLEGAL;
+            int occ = codec.occupancy(state);
+            int n = 0;
+            for (int idx = 0; idx < codec.blockCount(); idx++) {
+                if (model == MoveModel.SLIDE && idx == moved[depth]) continue;
+                int m = codec.successors(state, occ, idx, model, buf);
+                for (int k = 0; k < m; k++) {
+                    if (buf[k] == parent) continue;
+                    if (n == children[depth].length) grow(depth);
+                    long[] next = children[depth];
+                    int[] hs = childH[depth];
+                    int[] blocks = childBlock[depth];
+                    // 插入排序：子状态不多，h 小的放前面
+                    int h = estimate(buf[k]);
+                    int pos = n++;
+                    while (pos > 0 && hs[pos - 1] > h) {
+                        next[pos] = next[pos - 1];
+                        hs[pos] = hs[pos - 1];
+                        blocks[pos] = blocks[pos - 1];
+                        pos--;
+                    }
+                    next[pos] = buf[k];
+                    hs[pos] = h;
+                    blocks[pos] = idx;
+                }
+            }
+            return n;
+        }
+
+        private void grow(int depth) {
+            int len = children[depth].length * 2;
+            children[depth] = Arrays.copyOf(children[depth], len);
+            childH[depth] = Arrays.copyOf(childH[depth], len);
+            childBlock[depth] = Arrays.copyOf(childBlock[depth], len);
+        }
+
+        private void ensureDepth(int depth) {
+            if (depth >= path.length) {
+                int len = path.length * 2;
+                path = Arrays.copyOf(path, len);
+                moved = Arrays.copyOf(moved, len);
+                children = Arrays.copyOf(children, len);
+                childH = Arrays.copyOf(childH, len);
+                childBlock = Arrays.copyOf(childBlock, len);
+            }
+            if (children[depth - 1] == null) {
+                int len = codec.blockCount() * 4;
+                children[depth - 1] = new long[len];
+                childH[depth - 1] = new int[len];
+                childBlock[depth - 1] = new int[len];
+            }
+        }
+
+        private List<MoveInfo> toMoves(long[] states, int last) {
+            if (last <= 0) return Collections.emptyList();
+            List<MoveInfo> moves = new ArrayList<>(last);
+            for (int i = 1; i <= last; i++) moves.add(codec.moveBetween(states[i - 1], states[i]));
+            return moves;
+        }
+    }
+}
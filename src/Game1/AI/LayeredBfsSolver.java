@@ -0,0 +1,224 @@
+package Game1.AI;
+
+import Game1.models.Board;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分层广度优先求解器：第一次搜到终点的那一层就是最短步数。
+ * - 每一层只是一个排好序、去过重的 long[]，元素是 StateCodec 的键（键本身也是合法状态，可以直接展开），
+ *   每个状态只占 8 字节，没有节点对象和父指针
+ * - 走法可逆，新一层的邻居只可能落在上一层、本层或下一层，所以去重只要和最近两层做归并
+ * - 每层用 fork/join 分段并行展开，各段自己排序去重，合并后再整体去重
+ * - 路径靠倒推：从终点所在层往回，在上一层里二分查找它的邻居；再从真实的开局状态按键逐步重放出走法
+ */
+public class LayeredBfsSolver implements Solver {
+    private static final int THREAD_COUNT = Runtime.getRuntime().availableProcessors();
+    private static final int CHUNK = 1024;   // 一个叶子任务展开的状态数
+
+    private final StateCodec.KeyMode keyMode;
+    private final boolean foldMirror;
+    private final ForkJoinPool pool;   // 为 null 时每次求解自建
+
+    public LayeredBfsSolver() {
+        this(StateCodec.KeyMode.SHAPE, true, null);
+    }
+
+    /** pool 可以是多个求解共用的 ForkJoinPool，此时求解结束后不会关闭它 */
+    public LayeredBfsSolver(StateCodec.KeyMode keyMode, boolean foldMirror, ForkJoinPool pool) {
+        this.keyMode = keyMode;
+        this.foldMirror = foldMirror;
+        this.pool = pool;
+    }
+
+    @Override
+    public boolean guaranteesOptimal() {
+        return true;
+    }
+
+    @Override
+    public SolveResult solve(SolveRequest request) {
+        Board board = request.getBoard();
+        StateCodec codec = StateCodec.of(board, keyMode, foldMirror);
+        if (codec.caoIndex() == -1) {
+            System.out.println("未找到曹操方块！");
+            return SolveResult.none(0);
+        }
+        ForkJoinPool fj = pool != null ? pool : new ForkJoinPool(THREAD_COUNT);
+        try {
+            return new Search(codec, request, fj).run(codec.encode(board));
+        } finally {
+            if (pool == null) fj.shutdown();
+        }
+    }
+
+    private static class Search {
+        final StateCodec codec;
+        final SolveRequest request;
+        final MoveModel model;
+        final ForkJoinPool pool;
+        final List<long[]> layers = new ArrayList<>();
+        final AtomicLong expanded = new AtomicLong();
+        volatile boolean outOfBudget;
+
+        Search(StateCodec codec, SolveRequest request, ForkJoinPool pool) {
+            this.codec = codec;
+            this.request = request;
+            this.model = request.getMoveModel();
+            this.pool = pool;
+        }
+
+        SolveResult run(long start) {
+            long[] current = {codec.key(start)};
+            long[] previous = new long[0];
+            layers.add(current);
+            while (true) {
+                long goal = findGoal(current);
+                if (goal != StateCodec.ILLEGAL) {
+                    System.out.printf("BFS: depth=%d, expanded=%d%n", layers.size() - 1, expanded.get());
+                    return new SolveResult(replay(start, trace(goal)), true, expanded.get());
+                }
+                long[] next = pool.invoke(new Expand(current, 0, current.length));
+                next = subtract(subtract(unique(next), previous), current);
+                if (outOfBudget || request.exhausted(expanded.get())) break;
+                if (next.length == 0) {
+                    System.out.println("BFS: 无解");
+                    return SolveResult.none(expanded.get());
+                }
+                layers.add(next);
+                previous = current;
+                current = next;
+            }
+
+            // 预算用完：走到最后一层里离终点最近的状态
+            System.out.printf("BFS: 预算用完, depth=%d, expanded=%d%n", layers.size() - 1, expanded.get());
+            long near = current[0];
+            int best = Integer.MAX_VALUE;
+            for (long s : current) {
+                int h = codec.lowerBound(s, model);
+                if (h < best) {
+                    best = h;
+                    near = s;
+                }
+            }
+            return SolveResult.partial(replay(start, trace(near)), expanded.get());
+        }
+
+        private long findGoal(long[] layer) {
+            for (long s : layer) {
+                if (codec.isGoal(s)) return s;
+            }
+            return StateCodec.ILLEGAL;
+        }
+
+        // 从最后一层的某个键往回，逐层找一个在上一层里的邻居，得到开局到它的键序列
+        private long[] trace(long target) {
+            int depth = layers.size() - 1;
+            long[] chain = new long[depth + 1];
+            chain[depth] = target;
+            long[] buf = new long[codec.cells()];
+            for (int d = depth; d > 0; d--) {
+                long s = chain[d];
+                long[] prev = layers.get(d - 1);
+                int occ = codec.occupancy(s);
+                chain[d - 1] = StateCodec.ILLEGAL;
+                for (int idx = 0; idx < codec.blockCount() && chain[d - 1] == StateCodec.ILLEGAL; idx++) {
+                    int n = codec.successors(s, occ, idx, model, buf);
+                    for (int k = 0; k < n; k++) {
+                        long key = codec.key(buf[k]);
+                        if (Arrays.binarySearch(prev, key) >= 0) {
+                            chain[d - 1] = key;
+                            break;
+                        }
+                    }
+                }
+            }
+            return chain;
+        }
+
+        // 键里方块可能被互换或镜像过，从真实状态出发按键重放，得到真实的方块下标和方向
+        private List<MoveInfo> replay(long start, long[] chain) {
+            if (chain.length <= 1) return Collections.emptyList();
+            List<MoveInfo> moves = new ArrayList<>(chain.length - 1);
+            long cur = start;
+            for (int d = 1; d < chain.length; d++) {
+                MoveInfo move = codec.moveToward(cur, chain[d], model);
+                moves.add(move);
+                cur = codec.apply(cur, move);
+            }
+            return moves;
+        }
+
+        /** 展开 layer[from, to) 的所有状态，返回排好序去过重的邻居键 */
+        private class Expand extends RecursiveTask<long[]> {
+            private static final long serialVersionUID = 1L;
+
+            final long[] layer;
+            final int from, to;
+
+            Expand(long[] layer, int from, int to) {
+                this.layer = layer;
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected long[] compute() {
+                if (to - from > CHUNK) {
+                    int mid = (from + to) >>> 1;
+                    Expand left = new Expand(layer, from, mid);
+                    left.fork();
+                    long[] right = new Expand(layer, mid, to).compute();
+                    long[] l = left.join();
+                    long[] both = Arrays.copyOf(l, l.length + right.length);
+                    System.arraycopy(right, 0, both, l.length, right.length);
+                    return both;
+                }
+                if (outOfBudget) return new long[0];
+                long[] buf = new long[codec.cells()];
+                long[] out = new long[(to - from) * 8];
+                int size = 0;
+                for (int i = from; i < to; i++) {
+                    long s = layer[i];
+                    int occ = codec.occupancy(s);
+                    for (int idx = 0; idx < codec.blockCount(); idx++) {
+                        int n = codec.successors(s, occ, idx, model, buf);
+                        if (size + n > out.length) out = Arrays.copyOf(out, Math.max(out.length * 2, size + n));
+                        for (int k = 0; k < n; k++) out[size++] = codec.key(buf[k]);
+                    }
+                }
+                if (request.exhausted(expanded.addAndGet(to - from))) outOfBudget = true;
+                return unique(Arrays.copyOf(out, size));
+            }
+        }
+    }
+
+    /** 排序并去重（原地排序），返回新数组 */
+    static long[] unique(long[] a) {
+        if (a.length > CHUNK * 8) Arrays.parallelSort(a);
+        else Arrays.sort(a);
+        int n = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (n == 0 || a[i] != a[n - 1]) a[n++] = a[i];
+        }
+        return Arrays.copyOf(a, n);
+    }
+
+    /** a - b，两个都是有序无重复数组，线性归并 */
+    static long[] subtract(long[] a, long[] b) {
+        long[] out = new long[a.length];
+        int n = 0, j = 0;
+        for (long v : a) {
+            while (j < b.length && b[j] < v) j++;
+            if (j < b.length && b[j] == v) continue;
+            out[n++] = v;
+        }
+        return Arrays.copyOf(out, n);
+    }
+}
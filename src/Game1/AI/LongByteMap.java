@@ -0,0 +1,84 @@
+package Game1.AI;
+
+import java.util.Arrays;
+
+/**
+ * long -> byte 的开放寻址哈希表，给状态表用。
+ * 键必须是非负数（压缩状态总是非负），-1 表示空槽。
+ */
+public final class LongByteMap {
+    private static final long EMPTY = -1L;
+
+    private long[] keys;
+    private byte[] values;
+    private int size;
+    private int mask;
+
+    public LongByteMap(int expected) {
+        int cap = Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+        keys = new long[cap];
+        values = new byte[cap];
+        Arrays.fill(keys, EMPTY);
+        mask = cap - 1;
+    }
+
+    public int size() { return size; }
+
+    public boolean containsKey(long key) {
+        return keys[slot(key)] != EMPTY;
+    }
+
+    /** 找不到时返回 missing */
+    public int get(long key, int missing) {
+        int i = slot(key);
+        return keys[i] == EMPTY ? missing : values[i] & 0xFF;
+    }
+
+    /** 插入或覆盖；返回 true 表示是新键 */
+    public boolean put(long key, int value) {
+        int i = slot(key);
+        boolean added = keys[i] == EMPTY;
+        keys[i] = key;
+        values[i] = (byte) value;
+        if (added && ++size * 2 > keys.length) grow();
+        return added;
+    }
+
+    /** 按槽位遍历（无序） */
+    public void forEach(Entry action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) action.accept(keys[i], values[i] & 0xFF);
+        }
+    }
+
+    public interface Entry {
+        void accept(long key, int value);
+    }
+
+    private int slot(long key) {
+        int i = hash(key) & mask;
+        while (keys[i] != EMPTY && keys[i] != key) i = (i + 1) & mask;
+        return i;
+    }
+
+    static int hash(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return (int) (key ^ (key >>> 32));
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        byte[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new byte[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int j = slot(oldKeys[i]);
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+}
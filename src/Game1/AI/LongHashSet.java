@@ -0,0 +1,60 @@
+package Game1.AI;
+
+import java.util.Arrays;
+
+/**
+ * long 的开放寻址哈希集合，代替 HashSet&lt;Long&gt;，不装箱。
+ * 键必须是非负数（压缩状态总是非负），-1 表示空槽。
+ */
+public final class LongHashSet implements SeenSet {
+    private static final long EMPTY = -1L;
+
+    private long[] keys;
+    private int size;
+    private int mask;
+
+    public LongHashSet(int expected) {
+        int cap = Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+        keys = new long[cap];
+        Arrays.fill(keys, EMPTY);
+        mask = cap - 1;
+    }
+
+    public int size() { return size; }
+
+    @Override
+    public boolean contains(long key) {
+        return keys[slot(key)] != EMPTY;
+    }
+
+    /** 返回 true 表示原来没有 */
+    @Override
+    public boolean add(long key) {
+        int i = slot(key);
+        if (keys[i] != EMPTY) return false;
+        keys[i] = key;
+        if (++size * 2 > keys.length) grow();
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    private int slot(long key) {
+        int i = LongByteMap.hash(key) & mask;
+        while (keys[i] != EMPTY && keys[i] != key) i = (i + 1) & mask;
+        return i;
+    }
+
+    private void grow() {
+        long[] old = keys;
+        keys = new long[old.length * 2];
+        Arrays.fill(keys, EMPTY);
+        mask = keys.length - 1;
+        for (long k : old) {
+            if (k != EMPTY) keys[slot(k)] = k;
+        }
+    }
+}
@@ -2,16 +2,32 @@ package Game1.AI;
 
 import Game1.models.Board;
 
+import java.util.Arrays;
+
 public class MoveInfo {
 
 
     public final int blockIndex;
-    public final Board.Direction direction;
+    public final Board.Direction direction;   // 第一格的方向
+    public final Board.Direction[] path;      // 逐格的方向；STEP 走法只有一格
 
     public MoveInfo(int blockIndex, Board.Direction direction) {
+        this(blockIndex, new Board.Direction[]{direction});
+    }
+
+    public MoveInfo(int blockIndex, Board.Direction[] path) {
         this.blockIndex = blockIndex;
-        this.direction = direction;
+        this.direction = path[0];
+        this.path = path;
     }
 
+    //这一步实际移动的格数
+    public int distance() {
+        return path.length;
+    }
 
-}
\ No newline at end of file
+    @Override
+    public String toString() {
+        return blockIndex + ":" + Arrays.toString(path);
+    }
+}
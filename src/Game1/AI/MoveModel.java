@@ -0,0 +1,9 @@
+package Game1.AI;
+
+/**
+ * 求解时怎样算“一步”。
+ * - STEP：一块朝一个方向移动一格算一步，和玩家在界面上的操作、Board 的步数一致
+ * - SLIDE：同一块连续滑动任意格（中途可以拐弯）只算一步，即华容道通常的计步方法，
+ *   解的步数少得多，搜索深度和前沿也随之变小
+ */
+public enum MoveModel { STEP, SLIDE }
@@ -0,0 +1,282 @@
+package Game1.AI;
+
+import Game1.models.Block;
+import Game1.models.Board;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * 解路径的后处理：把 beam 之类不保证最短的求解器走出来的弯路去掉。
+ * - 先把路径还原成一串状态键，同一个键出现多次时直接跳到最后一次，去掉所有回路
+ * - 再把路径切成若干段，各段并行：从段内每个路点做有上限的 BFS，
+ *   得到路点之间的真实距离，再在段内按“路点 -> 路点”做一遍最短路，挑出最省的走法
+ * - 段的边界每一轮错开半段，跨边界的弯路下一轮也能被拉直；没有改进时停止
+ * - 最后从真实的开局状态按键重放出走法，在棋盘副本上逐格检查合法、终点一致、步数不增加，
+ *   任何一条不满足就原样返回输入的路径
+ */
+public class PathOptimizer {
+    public static final int SEGMENT_LENGTH = 32;
+    public static final int MAX_STATES = 20000;   // 每次局部 BFS 最多访问的状态数
+    public static final int MAX_PASSES = 4;
+
+    private final int segmentLength;
+    private final int maxStates;
+    private final ExecutorService executor;   // 为 null 时用 ForkJoinPool.commonPool()
+
+    public PathOptimizer() {
+        this(SEGMENT_LENGTH, MAX_STATES, null);
+    }
+
+    public PathOptimizer(int segmentLength, int maxStates, ExecutorService executor) {
+        this.segmentLength = Math.max(2, segmentLength);
+        this.maxStates = Math.max(1, maxStates);
+        this.executor = executor;
+    }
+
+    /** 返回一条从 board 出发、终点相同、步数不多于 path 的路径；path 本身不合法时原样返回 */
+    public List<MoveInfo> optimize(Board board, List<MoveInfo> path, MoveModel model) {
+        if (path.size() < 2) return path;
+        StateCodec codec = StateCodec.of(board, StateCodec.KeyMode.SHAPE, false);
+        long start = codec.encode(board);
+
+        long[] chain = new long[path.size() + 1];
+        long cur = start;
+        chain[0] = codec.key(cur);
+        for (int i = 0; i < path.size(); i++) {
+            cur = codec.apply(cur, path.get(i));
+            if (cur == StateCodec.ILLEGAL) return path;
+            chain[i + 1] = codec.key(cur);
+        }
+
+        chain = removeCycles(chain);
+        try {
+            for (int pass = 0; pass < MAX_PASSES; pass++) {
+                int offset = pass % 2 == 0 ? 0 : segmentLength / 2;
+                long[] shorter = shortenSegments(codec, model, chain, offset);
+                if (shorter.length >= chain.length && pass > 0) break;
+                chain = removeCycles(shorter);
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            e.printStackTrace();
+            return path;
+        }
+
+        List<MoveInfo> result = replay(codec, model, start, chain);
+        if (result == null || result.size() > path.size() || !verify(board, path, result)) return path;
+        if (result.size() < path.size()) {
+            System.out.println("PathOptimizer: " + path.size() + " -> " + result.size());
+        }
+        return result;
+    }
+
+    // 每个键只保留最后一次出现：从某个位置直接跳到同一状态最后一次出现的地方
+    static long[] removeCycles(long[] chain) {
+        Map<Long, Integer> last = new HashMap<>();
+        for (int i = 0; i < chain.length; i++) last.put(chain[i], i);
+        long[] out = new long[chain.length];
+        int n = 0;
+        for (int i = 0; i < chain.length; i = last.get(chain[i]) + 1) out[n++] = chain[i];
+        return Arrays.copyOf(out, n);
+    }
+
+    // 按 offset 开始切段，每段并行缩短，再按顺序拼回去（相邻段共用边界上的路点）
+    private long[] shortenSegments(StateCodec codec, MoveModel model, long[] chain, int offset)
+            throws InterruptedException, ExecutionException {
+        List<int[]> bounds = new ArrayList<>();
+        int from = 0;
+        int end = offset > 0 ? Math.min(offset, chain.length - 1) : Math.min(segmentLength, chain.length - 1);
+        while (from < chain.length - 1) {
+            bounds.add(new int[]{from, end});
+            from = end;
+            end = Math.min(from + segmentLength, chain.length - 1);
+        }
+
+        List<Callable<long[]>> tasks = new ArrayList<>(bounds.size());
+        for (int[] b : bounds) {
+            tasks.add(() -> shortenSegment(codec, model, Arrays.copyOfRange(chain, b[0], b[1] + 1)));
+        }
+        ExecutorService pool = executor != null ? executor : ForkJoinPool.commonPool();
+        List<Future<long[]>> futures = pool.invokeAll(tasks);
+
+        long[] out = new long[chain.length];
+        int n = 0;
+        out[n++] = chain[0];
+        for (Future<long[]> f : futures) {
+            long[] seg = f.get();
+            System.arraycopy(seg, 1, out, n, seg.length - 1);
+            n += seg.length - 1;
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    /**
+     * 一段路点 seg[0..m]：从每个路点 BFS（深度不超过到段尾的路点数），记下能更快到达的后面路点，
+     * 再在路点组成的有向无环图上做最短路。返回新的键序列，首尾和原来相同。
+     */
+    private long[] shortenSegment(StateCodec codec, MoveModel model, long[] seg) {
+        int m = seg.length - 1;
+        // 路点键排好序，BFS 里二分查找生成的键是不是路点；去过回路后段内的键互不相同
+        long[] sortedKeys = seg.clone();
+        Arrays.sort(sortedKeys);
+        int[] sortedIdx = new int[m + 1];
+        for (int k = 0; k <= m; k++) sortedIdx[Arrays.binarySearch(sortedKeys, seg[k])] = k;
+
+        int[] dist = new int[m + 1];          // 到路点 i 的最少步数
+        int[] from = new int[m + 1];          // 最短路上 i 的前一个路点
+        long[][] via = new long[m + 1][];     // 从 from[i] 到 i 的中间状态（不含两端），null 表示沿原路走一步
+        Arrays.fill(dist, Integer.MAX_VALUE);
+        dist[0] = 0;
+        Scratch scratch = new Scratch(codec.cells());
+        for (int i = 0; i < m; i++) {
+            if (dist[i] + 1 < dist[i + 1]) {
+                dist[i + 1] = dist[i] + 1;
+                from[i + 1] = i;
+                via[i + 1] = null;
+            }
+            long[][] shortcuts = bfs(codec, model, seg, i, sortedKeys, sortedIdx, scratch);
+            for (int j = i + 2; j <= m; j++) {
+                long[] inner = shortcuts[j];
+                if (inner == null) continue;
+                int d = inner.length + 1;
+                if (dist[i] + d < dist[j]) {
+                    dist[j] = dist[i] + d;
+                    from[j] = i;
+                    via[j] = inner;
+                }
+            }
+        }
+        if (dist[m] >= m) return seg;
+
+        List<Long> keys = new ArrayList<>();
+        for (int j = m; j > 0; j = from[j]) {
+            keys.add(seg[j]);
+            long[] inner = via[j];
+            if (inner != null) {
+                for (int k = inner.length - 1; k >= 0; k--) keys.add(inner[k]);
+            }
+        }
+        keys.add(seg[0]);
+        Collections.reverse(keys);
+        long[] out = new long[keys.size()];
+        for (int k = 0; k < out.length; k++) out[k] = keys.get(k);
+        return out;
+    }
+
+    /**
+     * 从 seg[i] 出发的 BFS，深度最多到段尾的路点数，状态数最多 maxStates。
+     * 状态按访问顺序存进平行数组 states / parent（父状态的下标），去重用 LongHashSet，不装箱；
+     * 这些数组放在 scratch 里，同一段的各个路点之间复用。
+     * 返回值下标是路点号：shortcuts[j] 是第一次到达 seg[j] 时经过的中间状态，没到达的为 null。
+     */
+    private long[][] bfs(StateCodec codec, MoveModel model, long[] seg, int i,
+                         long[] sortedKeys, int[] sortedIdx, Scratch scratch) {
+        int m = seg.length - 1;
+        long[][] shortcuts = new long[m + 1][];
+        int depth = m - i - 1;
+        if (depth <= 0) return shortcuts;
+
+        long[] states = scratch.states;
+        int[] parent = scratch.parent;
+        int[] level = scratch.level;
+        LongHashSet visited = scratch.visited;
+        long[] buf = scratch.buf;
+        visited.clear();
+        int n = 0;
+        states[n] = seg[i];
+        parent[n] = -1;
+        level[n++] = 0;
+        visited.add(seg[i]);
+
+        for (int head = 0; head < n && level[head] < depth && n < maxStates; head++) {
+            long s = states[head];
+            int occ = codec.occupancy(s);
+            for (int idx = 0; idx < codec.blockCount(); idx++) {
+                int c = codec.successors(s, occ, idx, model, buf);
+                for (int k = 0; k < c; k++) {
+                    long key = codec.key(buf[k]);
+                    if (!visited.add(key)) continue;
+                    if (n == states.length) {
+                        states = Arrays.copyOf(states, n * 2);
+                        parent = Arrays.copyOf(parent, n * 2);
+                        level = Arrays.copyOf(level, n * 2);
+                        scratch.states = states;
+                        scratch.parent = parent;
+                        scratch.level = level;
+                    }
+                    states[n] = key;
+                    parent[n] = head;
+                    level[n] = level[head] + 1;
+                    int w = Arrays.binarySearch(sortedKeys, key);
+                    if (w >= 0 && sortedIdx[w] > i + 1) {
+                        shortcuts[sortedIdx[w]] = innerPath(states, parent, head, level[head]);
+                    }
+                    n++;
+                }
+            }
+        }
+        return shortcuts;
+    }
+
+    /** 一个段内的 BFS 共用的缓冲区，只在一个线程里用 */
+    private static class Scratch {
+        long[] states = new long[1024];
+        int[] parent = new int[1024];
+        int[] level = new int[1024];
+        final LongHashSet visited = new LongHashSet(1024);
+        final long[] buf;
+
+        Scratch(int cells) {
+            buf = new long[cells];
+        }
+    }
+
+    // 从下标 last 沿 parent 回溯到起点，得到起点之后、last 为止的 len 个状态，按从起点出发的顺序
+    private static long[] innerPath(long[] states, int[] parent, int last, int len) {
+        long[] out = new long[len];
+        for (int p = last, k = len - 1; k >= 0; p = parent[p], k--) out[k] = states[p];
+        return out;
+    }
+
+    // 键里方块可能被互换过，从真实状态出发按键重放，得到真实的方块下标和方向
+    private static List<MoveInfo> replay(StateCodec codec, MoveModel model, long start, long[] chain) {
+        List<MoveInfo> moves = new ArrayList<>(chain.length - 1);
+        long cur = start;
+        for (int i = 1; i < chain.length; i++) {
+            MoveInfo move = codec.moveToward(cur, chain[i], model);
+            if (move == null) return null;
+            moves.add(move);
+            cur = codec.apply(cur, move);
+        }
+        return moves;
+    }
+
+    // 在棋盘副本上逐格走一遍：每格都合法，且终点和原路径的终点位置完全一样（按形状比较）
+    private static boolean verify(Board board, List<MoveInfo> original, List<MoveInfo> shorter) {
+        Board a = play(board, original), b = play(board, shorter);
+        if (a == null || b == null) return false;
+        StateCodec codec = StateCodec.of(board, StateCodec.KeyMode.SHAPE, false);
+        return codec.key(codec.encode(a)) == codec.key(codec.encode(b)) && a.isWin() == b.isWin();
+    }
+
+    private static Board play(Board board, List<MoveInfo> moves) {
+        Board copy = new Board(board);
+        for (MoveInfo move : moves) {
+            Block block = copy.getBlocks().get(move.blockIndex);
+            for (Board.Direction dir : move.path) {
+                if (!copy.canMove(block, dir)) return null;
+                copy.moveBlock(block, dir);
+            }
+        }
+        return copy;
+    }
+}
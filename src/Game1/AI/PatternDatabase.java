@@ -0,0 +1,373 @@
+package Game1.AI;
+
+import Game1.models.Block;
+import Game1.models.Board;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 模式数据库启发值（只用于 STEP 走法）。
+ * 抽象局面只保留曹操、关羽的位置和空格，其余方块都看成“填充格”：
+ * 填充格里任意一块和某个其他方块同形状的矩形（比如 1x2、1x1）都可以朝空格移动一格。
+ * 每个真实走法都对应一个抽象走法，所以抽象局面到终点的精确步数不会超过真实步数，
+ * 既可采纳又一致，A* 用它仍然保证最优。
+ * - 抽象局面按 (曹操格, 关羽格, 空格集合的组合编号) 排成一个 byte 数组，5x4 棋盘只有几万项
+ * - 从所有曹操在出口的抽象局面反向 BFS 一次算出整张表
+ * - 表只和各方块的形状有关，内置三关共用同一张；按 (目录, 形状签名) 缓存
+ * - 求解时只读文件、不写：目录里没有对应文件就在内存里现场构建；
+ *   写文件要显式调用 {@link #write(Board, String)} 或 main 离线构建
+ */
+public class PatternDatabase {
+    public static final int UNREACHABLE = 0xFF;
+    public static final String DEFAULT_DIR = "data/pdb/";
+
+    private static final int MAGIC = 0x4B4C5044; // "KLPD"
+    private static final int MAX_ENTRIES = 1 << 24;
+    private static final Board.Direction[] DIRS = Board.Direction.values();
+    private static final Map<String, byte[]> TABLES = new ConcurrentHashMap<>();
+
+    private final Shape shape;            // 含曹操、关羽在当前布局里的下标
+    private final byte[] table;
+    private final StateCodec codec;
+
+    private PatternDatabase(Shape shape, byte[] table, StateCodec codec) {
+        this.shape = shape;
+        this.table = table;
+        this.codec = codec;
+    }
+
+    /** 给某个布局取模式数据库：先查内存，再读 DEFAULT_DIR 下的文件，都没有就现场构建；不适用时返回 null */
+    public static PatternDatabase of(Board layout) {
+        return of(layout, DEFAULT_DIR);
+    }
+
+    /** dir 为 null 时不读文件，直接构建；任何情况下都不会写文件 */
+    public static PatternDatabase of(Board layout, String dir) {
+        Shape shape = Shape.of(layout.getBlocks());
+        if (shape == null) return null;
+        String cacheKey = (dir == null ? "" : new File(dir).getAbsolutePath()) + "|" + shape.signature;
+        byte[] table = TABLES.computeIfAbsent(cacheKey, k -> load(shape, dir));
+        return new PatternDatabase(shape, table, StateCodec.of(layout));
+    }
+
+    /** 把布局对应的表写到 dir 下，返回写出的文件；布局不适用时返回 null */
+    public static File write(Board layout, String dir) throws IOException {
+        PatternDatabase pdb = of(layout, dir);
+        if (pdb == null) return null;
+        File file = fileFor(dir, pdb.shape);
+        write(file, pdb.table);
+        return file;
+    }
+
+    private static File fileFor(String dir, Shape shape) {
+        return new File(dir, shape.signature + ".pdb");
+    }
+
+    /** 到终点至少还要几步；抽象局面无解时返回 UNREACHABLE */
+    public int estimate(long state) {
+        return estimate(state, codec.occupancy(state));
+    }
+
+    public int estimate(long state, int occ) {
+        int cao = codec.anchor(state, shape.caoIdx);
+        int guan = shape.hasGuan ? codec.anchor(state, shape.guanIdx) : 0;
+        int empty = ~occ & shape.allCells;
+        return table[shape.index(cao, guan, empty)] & 0xFF;
+    }
+
+    public int size() {
+        return table.length;
+    }
+
+    private static byte[] load(Shape shape, String dir) {
+        File file = dir == null ? null : fileFor(dir, shape);
+        if (file != null && file.exists()) {
+            try {
+                return read(file, shape);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return build(shape);
+    }
+
+    // 从所有曹操在出口的抽象局面反向 BFS；抽象走法都可逆，直接沿同样的边扩展
+    private static byte[] build(Shape s) {
+        byte[] table = new byte[s.entries];
+        Arrays.fill(table, (byte) UNREACHABLE);
+        int[] queue = new int[1 << 12];
+        int head = 0, tail = 0;
+
+        for (int guan = 0; guan < s.guanCells; guan++) {
+            int fixed = s.caoMask(s.goalCell) | s.guanMask(guan);
+            if (s.hasGuan && (s.guanMask(guan) == 0 || (s.caoMask(s.goalCell) & s.guanMask(guan)) != 0)) continue;
+            int rest = s.allCells & ~fixed;
+            for (int empty = firstSubset(rest, s.empties); empty != 0; empty = nextSubset(rest, empty)) {
+                int i = s.index(s.goalCell, guan, empty);
+                if (table[i] != (byte) UNREACHABLE) continue;
+                table[i] = 0;
+                if (tail == queue.length) queue = Arrays.copyOf(queue, tail * 2);
+                queue[tail++] = pack(s.goalCell, guan, empty);
+            }
+        }
+
+        int[] next = new int[s.maxNeighbours()];
+        while (head < tail) {
+            int cur = queue[head++];
+            int cao = cur & 0x1F, guan = (cur >>> 5) & 0x1F, empty = cur >>> 10;
+            int d = (table[s.index(cao, guan, empty)] & 0xFF) + 1;
+            if (d >= UNREACHABLE) throw new IllegalStateException("distance overflow: " + d);
+            int n = s.neighbours(cao, guan, empty, next);
+            for (int k = 0; k < n; k++) {
+                int p = next[k];
+                int i = s.index(p & 0x1F, (p >>> 5) & 0x1F, p >>> 10);
+                if (table[i] != (byte) UNREACHABLE) continue;
+                table[i] = (byte) d;
+                if (tail == queue.length) queue = Arrays.copyOf(queue, tail * 2);
+                queue[tail++] = p;
+            }
+        }
+        System.out.printf("PatternDatabase %s: entries=%d, reachable=%d%n", s.signature, s.entries, tail);
+        return table;
+    }
+
+    private static int pack(int cao, int guan, int empty) {
+        return cao | guan << 5 | empty << 10;
+    }
+
+    // 按组合顺序枚举 mask 里恰好 k 个位的子集（k == 0 时只有空集，这里不会出现）
+    private static int firstSubset(int mask, int k) {
+        int s = 0;
+        for (int m = mask; k > 0 && m != 0; m &= m - 1, k--) s |= Integer.lowestOneBit(m);
+        return k == 0 ? s : 0;
+    }
+
+    private static int nextSubset(int mask, int cur) {
+        // 在 mask 的位上做“下一个同样位数的组合”：把 cur 压缩成连续位，递增后再展开
+        int n = Integer.bitCount(mask);
+        int packed = 0, bit = 0;
+        for (int m = mask; m != 0; m &= m - 1, bit++) {
+            if ((cur & Integer.lowestOneBit(m)) != 0) packed |= 1 << bit;
+        }
+        int c = packed & -packed, r = packed + c;
+        packed = (((r ^ packed) >>> 2) / c) | r;
+        if (packed >= 1 << n) return 0;
+        int out = 0;
+        bit = 0;
+        for (int m = mask; m != 0; m &= m - 1, bit++) {
+            if ((packed & (1 << bit)) != 0) out |= Integer.lowestOneBit(m);
+        }
+        return out;
+    }
+
+    private static void write(File file, byte[] table) throws IOException {
+        File dir = file.getParentFile();
+        if (dir != null && !dir.exists()) dir.mkdirs();
+        ByteBuffer buf = ByteBuffer.allocate(8 + table.length);
+        buf.putInt(MAGIC).putInt(table.length).put(table);
+        buf.flip();
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buf.hasRemaining()) ch.write(buf);
+        }
+    }
+
+    private static byte[] read(File file, Shape shape) throws IOException {
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buf = ByteBuffer.allocate((int) ch.size());
+            while (buf.hasRemaining() && ch.read(buf) >= 0) ;
+            buf.flip();
+            if (buf.remaining() < 8 || buf.getInt() != MAGIC || buf.getInt() != shape.entries
+                    || buf.remaining() != shape.entries) {
+                throw new IOException("not a pattern database for " + shape.signature + ": " + file);
+            }
+            byte[] table = new byte[shape.entries];
+            buf.get(table);
+            return table;
+        }
+    }
+
+    /** 抽象局面的几何：曹操、关羽的形状，填充块的形状，空格数 */
+    private static class Shape {
+        final String signature;
+        final int caoIdx, guanIdx;
+        final boolean hasGuan;
+        final int cols, rows, cells, allCells, goalCell;
+        final int empties;
+        final int guanCells;          // 关羽位置的取值个数，没有关羽时为 1
+        final int subsets;            // C(cells, empties)
+        final int entries;
+        final int[] caoMasks, guanMasks;
+        final int[][] fillerMasks;    // [填充形状][左上角格子] -> 掩码
+        final int[][] step;
+        final int[][] binom;
+
+        private Shape(List<Block> blocks, int caoIdx, int guanIdx, int empties, int[][] fillers, String signature) {
+            this.signature = signature;
+            this.caoIdx = caoIdx;
+            this.guanIdx = guanIdx;
+            this.hasGuan = guanIdx >= 0;
+            this.cols = Board.COLS;
+            this.rows = Board.ROWS;
+            this.cells = rows * cols;
+            this.allCells = (1 << cells) - 1;
+            this.goalCell = StateCodec.EXIT_R * cols + StateCodec.EXIT_C;
+            this.empties = empties;
+
+            binom = new int[cells + 1][empties + 1];
+            for (int n = 0; n <= cells; n++) {
+                binom[n][0] = 1;
+                for (int k = 1; k <= Math.min(n, empties); k++) {
+                    binom[n][k] = binom[n - 1][k - 1] + (k <= n - 1 ? binom[n - 1][k] : 0);
+                }
+            }
+            subsets = binom[cells][empties];
+            guanCells = hasGuan ? cells : 1;
+            long total = (long) cells * guanCells * subsets;
+            entries = total > MAX_ENTRIES ? -1 : (int) total;
+
+            Block cao = blocks.get(caoIdx);
+            caoMasks = masks(cao.getWidth(), cao.getHeight());
+            guanMasks = hasGuan ? masks(blocks.get(guanIdx).getWidth(), blocks.get(guanIdx).getHeight()) : null;
+            fillerMasks = new int[fillers.length][];
+            for (int f = 0; f < fillers.length; f++) fillerMasks[f] = masks(fillers[f][0], fillers[f][1]);
+
+            step = new int[cells][DIRS.length];
+            for (int c = 0; c < cells; c++) {
+                int x = c % cols, y = c / cols;
+                for (int d = 0; d < DIRS.length; d++) {
+                    int nx = x + DIRS[d].dx(), ny = y + DIRS[d].dy();
+                    step[c][d] = (nx < 0 || nx >= cols || ny < 0 || ny >= rows) ? -1 : ny * cols + nx;
+                }
+            }
+        }
+
+        static Shape of(List<Block> blocks) {
+            int cao = -1, guan = -1, area = 0;
+            for (int i = 0; i < blocks.size(); i++) {
+                Block b = blocks.get(i);
+                area += b.getWidth() * b.getHeight();
+                if (b.getType() == Block.BlockType.CAO_CAO && cao == -1) cao = i;
+                else if (b.getType() == Block.BlockType.GUAN_YU && guan == -1) guan = i;
+            }
+            int empties = Board.ROWS * Board.COLS - area;
+            if (cao == -1 || empties <= 0) return null;
+
+            // 其余方块只保留形状，去重后排序，签名里也用这个顺序
+            TreeSet<Integer> fillerSet = new TreeSet<>();
+            for (int i = 0; i < blocks.size(); i++) {
+                if (i == cao || i == guan) continue;
+                fillerSet.add(blocks.get(i).getWidth() * 16 + blocks.get(i).getHeight());
+            }
+            int[][] fillers = new int[fillerSet.size()][];
+            StringBuilder sig = new StringBuilder("pdb-c")
+                    .append(blocks.get(cao).getWidth()).append('x').append(blocks.get(cao).getHeight());
+            sig.append(guan == -1 ? "-g0" : "-g" + blocks.get(guan).getWidth() + "x" + blocks.get(guan).getHeight());
+            sig.append("-f");
+            int f = 0;
+            for (int code : fillerSet) {
+                fillers[f++] = new int[]{code / 16, code % 16};
+                sig.append(code / 16).append('x').append(code % 16).append('.');
+            }
+            sig.append("e").append(empties);
+
+            Shape s = new Shape(blocks, cao, guan, empties, fillers, sig.toString());
+            return s.entries < 0 ? null : s;
+        }
+
+        private int[] masks(int w, int h) {
+            int[] out = new int[cells];
+            for (int c = 0; c < cells; c++) {
+                int x = c % cols, y = c / cols;
+                if (x + w > cols || y + h > rows) continue;
+                int m = 0;
+                for (int dy = 0; dy < h; dy++) {
+                    for (int dx = 0; dx < w; dx++) m |= 1 << ((y + dy) * cols + x + dx);
+                }
+                out[c] = m;
+            }
+            return out;
+        }
+
+        int caoMask(int cell) {
+            return caoMasks[cell];
+        }
+
+        int guanMask(int cell) {
+            return hasGuan ? guanMasks[cell] : 0;
+        }
+
+        // 组合数系统给空格集合编号：从小到大第 i 个空格 c 贡献 C(c, i + 1)
+        int index(int cao, int guan, int empty) {
+            int rank = 0, i = 1;
+            for (int m = empty; m != 0; m &= m - 1, i++) {
+                rank += binom[Integer.numberOfTrailingZeros(m)][i];
+            }
+            return (cao * guanCells + guan) * subsets + rank;
+        }
+
+        // 一个抽象局面最多的邻居数：曹操、关羽各四个方向，每种填充形状的每个位置各四个方向
+        int maxNeighbours() {
+            return 2 * DIRS.length + fillerMasks.length * cells * DIRS.length;
+        }
+
+        // 抽象局面的所有邻居写进 out（长度至少为 maxNeighbours()），返回个数
+        int neighbours(int cao, int guan, int empty, int[] out) {
+            int n = 0;
+            int caoM = caoMasks[cao], guanM = guanMask(guan);
+            int others = allCells & ~(caoM | guanM | empty);
+
+            for (int d = 0; d < DIRS.length; d++) {
+                int t = step[cao][d];
+                if (t >= 0 && caoMasks[t] != 0 && (caoMasks[t] & ~caoM & ~empty) == 0) {
+                    out[n++] = pack(t, guan, (empty & ~caoMasks[t]) | (caoM & ~caoMasks[t]));
+                }
+                if (hasGuan) {
+                    t = step[guan][d];
+                    if (t >= 0 && guanMasks[t] != 0 && (guanMasks[t] & ~guanM & ~empty) == 0) {
+                        out[n++] = pack(cao, t, (empty & ~guanMasks[t]) | (guanM & ~guanMasks[t]));
+                    }
+                }
+            }
+
+            // 填充格里任意一块合适形状的矩形朝空格挪一格
+            for (int[] masks : fillerMasks) {
+                for (int c = 0; c < cells; c++) {
+                    int m = masks[c];
+                    if (m == 0 || (m & others) != m) continue;
+                    for (int d = 0; d < DIRS.length; d++) {
+                        int t = step[c][d];
+                        if (t < 0 || masks[t] == 0) continue;
+                        int edge = masks[t] & ~m;
+                        if ((edge & empty) != edge) continue;
+                        out[n++] = pack(cao, guan, (empty & ~edge) | (m & ~masks[t]));
+                    }
+                }
+            }
+            return n;
+        }
+    }
+
+    // 离线构建内置关卡用到的表：java Game1.AI.PatternDatabase [输出目录]
+    public static void main(String[] args) throws IOException {
+        String dir = args.length > 0 ? args[0] : DEFAULT_DIR;
+        for (int level = 1; level <= 3; level++) {
+            Board layout = new Board();
+            layout.initializeBoard(level);
+            File file = write(layout, dir);
+            PatternDatabase pdb = of(layout, dir);
+            System.out.println("level " + level + " -> " + (pdb == null ? "not applicable" : file + " "
+                    + pdb.shape.signature + " (" + pdb.size() + " entries, start estimate "
+                    + pdb.estimate(pdb.codec.encode(layout)) + ")"));
+        }
+    }
+}
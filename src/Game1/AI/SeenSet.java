@@ -0,0 +1,156 @@
+package Game1.AI;
+
+import java.util.Arrays;
+
+/**
+ * BeamSolver 的去重策略。beam 本身只留 W 个状态，去重表却会随着生成的状态一直涨，
+ * 下面几种实现用不同的代价把内存限制住：
+ * - global：全部记住（LongHashSet），不漏不错，内存 O(生成总数)
+ * - window：只记最近 N 层生成的键，内存 O(N × 每层生成数)；更早的状态可能被重新生成
+ * - lossy：固定大小的直接映射表，冲突时覆盖，漏记的状态可能被重新生成
+ * - bloom：布隆过滤器，不会漏记但有误判，误判的新状态会被当成见过而丢掉
+ * contains 在展开时会被多个线程同时调用（此时没有写），add / nextLayer 只在合并时单线程调用。
+ * 键必须是非负数（压缩状态总是非负）。
+ */
+public interface SeenSet {
+    boolean contains(long key);
+
+    /** 返回 true 表示之前没见过（bloom 可能误判为见过） */
+    boolean add(long key);
+
+    /** beam 进入下一层时调用 */
+    default void nextLayer() {
+    }
+
+    /** 是否可能把没见过的键当成见过（只有 bloom 会）；会的话 beam 即使没截断也不能保证最短 */
+    default boolean mayDropUnseen() {
+        return false;
+    }
+
+    static SeenSet global() {
+        return new LongHashSet(1024);
+    }
+
+    static SeenSet window(int layers) {
+        return new Window(layers);
+    }
+
+    static SeenSet lossy(int bits) {
+        return new Lossy(bits);
+    }
+
+    /** expected：预计插入的键数，超过以后误判率会逐渐升高 */
+    static SeenSet bloom(long expected, double falsePositiveRate) {
+        return new Bloom(expected, falsePositiveRate);
+    }
+
+    /** 最近 N 层，每层一个 LongHashSet，轮换时清空最旧的一层 */
+    final class Window implements SeenSet {
+        private final LongHashSet[] layers;
+        private int current;
+
+        Window(int count) {
+            layers = new LongHashSet[Math.max(1, count)];
+            for (int i = 0; i < layers.length; i++) layers[i] = new LongHashSet(1024);
+        }
+
+        @Override
+        public boolean contains(long key) {
+            for (LongHashSet s : layers) {
+                if (s.contains(key)) return true;
+            }
+            return false;
+        }
+
+        @Override
+        public boolean add(long key) {
+            return !contains(key) && layers[current].add(key);
+        }
+
+        @Override
+        public void nextLayer() {
+            current = (current + 1) % layers.length;
+            layers[current].clear();
+        }
+    }
+
+    /** 直接映射：每个槽只放一个键，新的覆盖旧的 */
+    final class Lossy implements SeenSet {
+        private final long[] keys;
+        private final int mask;
+
+        Lossy(int bits) {
+            bits = Math.max(4, Math.min(bits, 30));
+            keys = new long[1 << bits];
+            Arrays.fill(keys, -1L);
+            mask = keys.length - 1;
+        }
+
+        @Override
+        public boolean contains(long key) {
+            return keys[LongByteMap.hash(key) & mask] == key;
+        }
+
+        @Override
+        public boolean add(long key) {
+            int i = LongByteMap.hash(key) & mask;
+            if (keys[i] == key) return false;
+            keys[i] = key;
+            return true;
+        }
+    }
+
+    /** 双重哈希的布隆过滤器：m = -n·ln(p) / ln²2 位，k = m/n·ln2 个哈希 */
+    final class Bloom implements SeenSet {
+        private final long[] bits;
+        private final long size;
+        private final int hashes;
+
+        Bloom(long expected, double falsePositiveRate) {
+            expected = Math.max(1, expected);
+            double p = Math.min(Math.max(falsePositiveRate, 1e-9), 0.5);
+            long m = (long) Math.ceil(-expected * Math.log(p) / (Math.log(2) * Math.log(2)));
+            m = Math.max(64, Math.min(m, 1L << 32));   // 最多 512 MB
+            bits = new long[(int) ((m + 63) >>> 6)];
+            size = (long) bits.length << 6;
+            hashes = Math.max(1, (int) Math.round((double) size / expected * Math.log(2)));
+        }
+
+        @Override
+        public boolean contains(long key) {
+            long h1 = mix(key), h2 = mix(h1) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Long.remainderUnsigned(h1 + i * h2, size);
+                if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) return false;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean add(long key) {
+            long h1 = mix(key), h2 = mix(h1) | 1;
+            boolean added = false;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Long.remainderUnsigned(h1 + i * h2, size);
+                int word = (int) (bit >>> 6);
+                if ((bits[word] & (1L << bit)) == 0) {
+                    bits[word] |= 1L << bit;
+                    added = true;
+                }
+            }
+            return added;
+        }
+
+        @Override
+        public boolean mayDropUnseen() {
+            return true;
+        }
+
+        // splitmix64 的混合步骤
+        private static long mix(long z) {
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            return z ^ (z >>> 31);
+        }
+    }
+}
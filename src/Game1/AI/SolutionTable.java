@@ -0,0 +1,246 @@
+package Game1.AI;
+
+import Game1.models.Board;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 某一关全部可达状态到终点的最少步数表。
+ * - 从初始布局 BFS 枚举整个连通分量（键为 SHAPE + 镜像折叠）
+ * - 再从分量内所有胜利状态反向多源 BFS，得到每个状态的精确步数
+ * - 游戏中任何局面都可以直接查到“下一步最优走法”
+ * 文件是按键排序的定长记录（每条一个 long：键 << 8 | 步数），键最多 56 位，即最多 11 块，
+ * 通过 FileChannel.map 映射后原地二分查找，不反序列化、不占堆，
+ * 多个游戏进程可以通过系统页缓存共享同一份数据。
+ */
+public class SolutionTable {
+    public static final int NO_SOLUTION = 0xFF;
+    public static final String DEFAULT_DIR = "data/solutions/";
+
+    private static final int MAGIC = 0x4B4C5453; // "KLTS"
+    private static final int HEADER_BYTES = 8;   // 魔数 + 记录数
+    private static final int KEY_BITS = Long.SIZE - 8;   // 低 8 位放步数
+    private static final Board.Direction[] DIRS = Board.Direction.values();
+
+    private final StateCodec codec;
+    private final LongBuffer records;     // 有序记录，刚构建的在堆上，读取的是映射文件
+
+    private SolutionTable(StateCodec codec, LongBuffer records) {
+        this.codec = codec;
+        this.records = records;
+    }
+
+    public static StateCodec codecFor(Board layout) {
+        return StateCodec.of(layout, StateCodec.KeyMode.SHAPE, true);
+    }
+
+    public static SolutionTable build(Board layout) {
+        StateCodec codec = codecFor(layout);
+        if (codec.caoIndex() == -1) {
+            throw new IllegalArgumentException("layout has no CAO_CAO block");
+        }
+        checkKeyBits(codec);
+
+        // 1. 正向枚举可达状态，顺便收集胜利状态
+        LongByteMap map = new LongByteMap(1 << 15);
+        long[] queue = new long[1 << 12];
+        int head = 0, tail = 0;
+        long startKey = codec.key(codec.encode(layout));
+        map.put(startKey, NO_SOLUTION);
+        queue[tail++] = startKey;
+        List<Long> goals = new ArrayList<>();
+        while (head < tail) {
+            long cur = queue[head++];
+            if (codec.isGoal(cur)) goals.add(cur);
+            int occ = codec.occupancy(cur);
+            for (int idx = 0; idx < codec.blockCount(); idx++) {
+                for (Board.Direction dir : DIRS) {
+                    long next = codec.move(cur, occ, idx, dir);
+                    if (next == StateCodec.ILLEGAL) continue;
+                    long key = codec.key(next);
+                    if (map.put(key, NO_SOLUTION)) {
+                        if (tail == queue.length) queue = Arrays.copyOf(queue, tail * 2);
+                        queue[tail++] = key;
+                    }
+                }
+            }
+        }
+
+        // 2. 从所有胜利状态反向 BFS；走法可逆，所以直接沿同样的边扩展
+        head = 0;
+        tail = 0;
+        for (long g : goals) {
+            map.put(g, 0);
+            queue[tail++] = g;
+        }
+        while (head < tail) {
+            long cur = queue[head++];
+            int d = map.get(cur, NO_SOLUTION) + 1;
+            if (d >= NO_SOLUTION) throw new IllegalStateException("distance overflow: " + d);
+            int occ = codec.occupancy(cur);
+            for (int idx = 0; idx < codec.blockCount(); idx++) {
+                for (Board.Direction dir : DIRS) {
+                    long next = codec.move(cur, occ, idx, dir);
+                    if (next == StateCodec.ILLEGAL) continue;
+                    long key = codec.key(next);
+                    if (map.get(key, 0) == NO_SOLUTION) {
+                        map.put(key, d);
+                        queue[tail++] = key;
+                    }
+                }
+            }
+        }
+
+        System.out.printf("SolutionTable: states=%d, goals=%d, start distance=%d%n",
+                map.size(), goals.size(), map.get(startKey, NO_SOLUTION));
+
+        // 3. 转成有序定长记录
+        long[] sorted = new long[map.size()];
+        int[] n = new int[1];
+        map.forEach((key, value) -> sorted[n[0]++] = (key << 8) | value);
+        Arrays.sort(sorted);
+        return new SolutionTable(codec, LongBuffer.wrap(sorted));
+    }
+
+    public int size() {
+        return records.limit();
+    }
+
+    /** 到终点的最少步数；不在表里或无解时返回 NO_SOLUTION */
+    public int distance(long state) {
+        long key = codec.key(state);
+        int lo = 0, hi = records.limit() - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long rec = records.get(mid);
+            long k = rec >>> 8;
+            if (k < key) lo = mid + 1;
+            else if (k > key) hi = mid - 1;
+            else return (int) (rec & 0xFF);
+        }
+        return NO_SOLUTION;
+    }
+
+    public int distance(Board board) {
+        return distance(codec.encode(board));
+    }
+
+    /** 当前局面下的最优一步；已经胜利、无解或局面不属于本关时返回 null */
+    public MoveInfo bestMove(Board board) {
+        return bestMove(codec.encode(board));
+    }
+
+    private MoveInfo bestMove(long state) {
+        int d = distance(state);
+        if (d == 0 || d == NO_SOLUTION) return null;
+        int occ = codec.occupancy(state);
+        for (int idx = 0; idx < codec.blockCount(); idx++) {
+            for (Board.Direction dir : DIRS) {
+                long next = codec.move(state, occ, idx, dir);
+                if (next != StateCodec.ILLEGAL && distance(next) == d - 1) {
+                    return new MoveInfo(idx, dir);
+                }
+            }
+        }
+        return null;
+    }
+
+    /** 沿表一路走到终点，得到一条最短解 */
+    public List<MoveInfo> solve(Board board) {
+        long state = codec.encode(board);
+        if (distance(state) == NO_SOLUTION) return Collections.emptyList();
+        List<MoveInfo> path = new ArrayList<>();
+        for (MoveInfo mv = bestMove(state); mv != null; mv = bestMove(state)) {
+            path.add(mv);
+            state = codec.apply(state, mv);
+        }
+        return path;
+    }
+
+    //文件格式：魔数、记录数，然后是按键排序的 long 记录
+    public void write(File file) throws IOException {
+        File dir = file.getParentFile();
+        if (dir != null && !dir.exists()) dir.mkdirs();
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_BYTES + size() * Long.BYTES);
+        buf.putInt(MAGIC).putInt(size());
+        for (int i = 0; i < size(); i++) buf.putLong(records.get(i));
+        buf.flip();
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buf.hasRemaining()) ch.write(buf);
+        }
+    }
+
+    /** 映射文件只读打开；通道关闭后映射仍然有效 */
+    public static SolutionTable open(File file, Board layout) throws IOException {
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long bytes = ch.size();
+            if (bytes < HEADER_BYTES) throw new IOException("not a solution table: " + file);
+            ByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, 0, bytes);
+            if (map.getInt() != MAGIC) throw new IOException("not a solution table: " + file);
+            int count = map.getInt();
+            if ((long) count * Long.BYTES != bytes - HEADER_BYTES) {
+                throw new IOException("truncated solution table: " + file);
+            }
+            StateCodec codec = codecFor(layout);
+            checkKeyBits(codec);
+            return new SolutionTable(codec, map.slice().asLongBuffer());
+        }
+    }
+
+    // 键左移 8 位后高位不能丢，否则不同状态会撞在一起、查到错误的步数
+    private static void checkKeyBits(StateCodec codec) {
+        int bits = codec.blockCount() * StateCodec.BITS;
+        if (bits > KEY_BITS) {
+            throw new IllegalArgumentException("layout has " + codec.blockCount() + " blocks, keys need "
+                    + bits + " bits but a solution table record only holds " + KEY_BITS);
+        }
+    }
+
+    public static File fileFor(String dir, int level) {
+        return new File(dir, "level" + level + ".tbl");
+    }
+
+    /** 映射某一关的表，文件不存在或损坏时现场构建并写回 */
+    public static SolutionTable load(String dir, int level) {
+        Board layout = new Board();
+        layout.initializeBoard(level);
+        File file = fileFor(dir, level);
+        if (file.exists()) {
+            try {
+                return open(file, layout);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        SolutionTable table = build(layout);
+        try {
+            table.write(file);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return table;
+    }
+
+    // 离线构建全部内置关卡：java Game1.AI.SolutionTable [输出目录]
+    public static void main(String[] args) throws IOException {
+        String dir = args.length > 0 ? args[0] : DEFAULT_DIR;
+        for (int level = 1; level <= 3; level++) {
+            Board layout = new Board();
+            layout.initializeBoard(level);
+            SolutionTable table = build(layout);
+            File file = fileFor(dir, level);
+            table.write(file);
+            System.out.println("level " + level + " -> " + file + " (" + table.size() + " states)");
+        }
+    }
+}
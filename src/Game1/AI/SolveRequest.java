@@ -0,0 +1,74 @@
+package Game1.AI;
+
+import Game1.models.Board;
+
+/**
+ * 一次求解请求：棋盘 + 预算。
+ * - deadline：System.nanoTime() 意义下的截止时间，Long.MAX_VALUE 表示不限
+ * - maxStates：最多扩展的状态数
+ * - requireOptimal：是否必须返回被证明最短的解（由 SolverRegistry 选择能保证最优的算法）
+ * - moveModel：怎样算一步，默认 STEP（一格一步）
+ * 预算耗尽时求解器不再继续，而是返回目前为止最好的（可能不完整的）结果。
+ */
+public class SolveRequest {
+    public static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private final Board board;
+    private final long deadline;
+    private final long maxStates;
+    private final boolean requireOptimal;
+    private final MoveModel moveModel;
+
+    public SolveRequest(Board board, long deadline, long maxStates, boolean requireOptimal, MoveModel moveModel) {
+        this.board = board;
+        this.deadline = deadline;
+        this.maxStates = maxStates;
+        this.requireOptimal = requireOptimal;
+        this.moveModel = moveModel;
+    }
+
+    public static SolveRequest of(Board board) {
+        return new SolveRequest(board, NO_DEADLINE, Long.MAX_VALUE, false, MoveModel.STEP);
+    }
+
+    public SolveRequest withTimeLimit(long millis) {
+        return new SolveRequest(board, System.nanoTime() + millis * 1_000_000L, maxStates, requireOptimal, moveModel);
+    }
+
+    public SolveRequest withMaxStates(long maxStates) {
+        return new SolveRequest(board, deadline, maxStates, requireOptimal, moveModel);
+    }
+
+    public SolveRequest withRequireOptimal(boolean requireOptimal) {
+        return new SolveRequest(board, deadline, maxStates, requireOptimal, moveModel);
+    }
+
+    public SolveRequest withMoveModel(MoveModel moveModel) {
+        return new SolveRequest(board, deadline, maxStates, requireOptimal, moveModel);
+    }
+
+    /** 预算是否已经用完；expanded 为当前已扩展的状态数 */
+    public boolean exhausted(long expanded) {
+        return expanded >= maxStates || (deadline != NO_DEADLINE && System.nanoTime() - deadline >= 0);
+    }
+
+    public Board getBoard() {
+        return board;
+    }
+
+    public long getDeadline() {
+        return deadline;
+    }
+
+    public long getMaxStates() {
+        return maxStates;
+    }
+
+    public boolean isRequireOptimal() {
+        return requireOptimal;
+    }
+
+    public MoveModel getMoveModel() {
+        return moveModel;
+    }
+}
@@ -0,0 +1,50 @@
+package Game1.AI;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 求解结果：走法序列、是否走到终点、以及它是否被证明是最短的。
+ * 预算耗尽时 complete 为 false，moves 是通往目前离终点最近的状态的走法。
+ * exhaustive 只用于没找到解的结果：搜索在给定的深度上限内一个状态都没丢，说明上限内确实无解。
+ */
+public class SolveResult {
+    public final List<MoveInfo> moves;
+    public final boolean complete;    // moves 走完后是否胜利
+    public final boolean optimal;     // true 表示搜索按最优终止条件结束，moves 一定是最短解
+    public final long expanded;       // 扩展过的状态数
+    public final boolean exhaustive;  // 没找到解，但已经证明深度上限内无解
+
+    public SolveResult(List<MoveInfo> moves, boolean complete, boolean optimal, long expanded) {
+        this(moves, complete, optimal, expanded, false);
+    }
+
+    private SolveResult(List<MoveInfo> moves, boolean complete, boolean optimal, long expanded, boolean exhaustive) {
+        this.moves = moves;
+        this.complete = complete;
+        this.optimal = optimal;
+        this.expanded = expanded;
+        this.exhaustive = exhaustive;
+    }
+
+    public SolveResult(List<MoveInfo> moves, boolean optimal, long expanded) {
+        this(moves, true, optimal, expanded);
+    }
+
+    public static SolveResult partial(List<MoveInfo> moves, long expanded) {
+        return new SolveResult(moves, false, false, expanded);
+    }
+
+    /** 深度上限内穷尽了所有状态也没有解；moves 仍是通往离终点最近的状态的走法 */
+    public static SolveResult noSolutionWithin(List<MoveInfo> moves, long expanded) {
+        return new SolveResult(moves, false, false, expanded, true);
+    }
+
+    public static SolveResult none(long expanded) {
+        return partial(Collections.emptyList(), expanded);
+    }
+
+    public boolean isSolved() {
+        return complete;
+    }
+}
@@ -0,0 +1,22 @@
+package Game1.AI;
+
+import Game1.models.Board;
+
+/**
+ * 求解器的公共接口。
+ * 实现类不保存任何静态可变状态，每次 solve 都有自己的上下文，
+ * 同一个实例可以被多个线程同时用来解不同的棋盘。
+ */
+public interface Solver {
+    /** 在请求的预算内求解；预算耗尽时返回目前最好的部分结果 */
+    SolveResult solve(SolveRequest request);
+
+    default SolveResult solve(Board board) {
+        return solve(SolveRequest.of(board));
+    }
+
+    /** 不受预算打断时，返回的解是否一定最短 */
+    default boolean guaranteesOptimal() {
+        return false;
+    }
+}
@@ -0,0 +1,61 @@
+package Game1.AI;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * 按名字选择求解算法。内置：astar、hda、ida、bfs、beam、beam-adaptive、anytime、bidirectional，
+ * 也可以在启动时 register 自己的实现。
+ */
+public class SolverRegistry {
+    public static final String DEFAULT = "anytime";
+    public static final String OPTIMAL_DEFAULT = "astar";
+
+    private static final Map<String, Supplier<Solver>> SOLVERS =
+            Collections.synchronizedMap(new TreeMap<>());
+
+    static {
+        register("astar", AStarSolver::new);
+        register("hda", HdaStarSolver::new);
+        register("beam", BeamSolver::new);
+        register("bidirectional", BiDirectionalSolver::new);
+        register("ida", IdaStarSolver::new);
+        register("bfs", LayeredBfsSolver::new);
+        register("beam-adaptive", AdaptiveBeamSolver::new);
+        register("anytime", AnytimeSolver::new);
+    }
+
+    private SolverRegistry() {
+    }
+
+    public static void register(String name, Supplier<Solver> factory) {
+        SOLVERS.put(name.toLowerCase(), factory);
+    }
+
+    public static Set<String> names() {
+        synchronized (SOLVERS) {
+            return Set.copyOf(SOLVERS.keySet());
+        }
+    }
+
+    /** 名字未知时抛 IllegalArgumentException */
+    public static Solver create(String name) {
+        Supplier<Solver> factory = SOLVERS.get(name == null ? DEFAULT : name.toLowerCase());
+        if (factory == null) {
+            throw new IllegalArgumentException("unknown solver: " + name + ", available: " + names());
+        }
+        return factory.get();
+    }
+
+    /** 按请求选择：要求最优但指定的算法做不到时，换成默认的最优算法 */
+    public static Solver forRequest(String name, SolveRequest request) {
+        Solver solver = create(name);
+        if (request.isRequireOptimal() && !solver.guaranteesOptimal()) {
+            solver = create(OPTIMAL_DEFAULT);
+        }
+        return solver;
+    }
+}
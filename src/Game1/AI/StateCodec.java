@@ -0,0 +1,451 @@
+package Game1.AI;
+
+import Game1.models.Block;
+import Game1.models.Board;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 把 5x4 棋盘压缩成一个 long 的编解码器，三个求解器共用。
+ * - 每个方块占 5 bit，记录其左上角所在格子的编号 (y * COLS + x)，最多支持 12 个方块
+ * - 方块的宽高只和下标有关，由编解码器本身保存，状态里不再重复存
+ * - 占用情况用 20 bit 的掩码表示，移动检查只需要几次位运算
+ * - SHAPE 键模式下，同类型同形状的方块互相交换视为同一状态（组内按格子编号排序）
+ * - 开启镜像折叠时，状态和它的左右镜像取较小的键，终点 (1,3) 本身左右对称
+ * - 走法按 {@link MoveModel} 生成：STEP 每次一格，SLIDE 一块连续滑动到的每个位置各算一步
+ */
+public final class StateCodec {
+    public static final int EXIT_R = 3, EXIT_C = 1;
+    public static final long ILLEGAL = -1L;
+
+    static final int BITS = 5;
+    static final long FIELD = (1L << BITS) - 1;
+    static final int MAX_BLOCKS = 64 / BITS;
+
+    private static final Board.Direction[] DIRS = Board.Direction.values();
+
+    /** 去重用的键：INDEXED 按方块下标区分，SHAPE 只按类型和形状区分 */
+    public enum KeyMode { INDEXED, SHAPE }
+
+    private final int rows, cols, cells;
+    private final int blockCount;
+    private final int caoIdx;
+    private final int goalCell;
+    private final int[] shapeOf;          // 下标 -> 形状编号
+    private final int[] widthOf;          // 下标 -> 宽度，镜像时用
+    private final int[][] shapeMask;      // [形状][左上角格子] -> 占用掩码，放不下时为 0
+    private final int[][] step;           // [格子][方向] -> 移动一格后的格子，越界为 -1
+    private final int[][] groups;         // 可互换的方块下标组（至少两个）
+    private final int notFirstCol;        // 去掉第一列的格子掩码，滑动时按位扩散用
+    private final int notLastCol;         // 去掉最后一列的格子掩码
+    private final int caoReach;           // SLIDE 下曹操一步最多能前进的曼哈顿距离
+    private final KeyMode keyMode;
+    private final boolean foldMirror;
+
+    private StateCodec(List<Block> blocks, KeyMode keyMode, boolean foldMirror) {
+        this.keyMode = keyMode;
+        rows = Board.ROWS;
+        cols = Board.COLS;
+        cells = rows * cols;
+        blockCount = blocks.size();
+        if (blockCount > MAX_BLOCKS) {
+            throw new IllegalArgumentException("too many blocks to pack: " + blockCount);
+        }
+
+        int cao = -1;
+        for (int i = 0; i < blockCount; i++) {
+            if (blocks.get(i).getType() == Block.BlockType.CAO_CAO) {
+                cao = i;
+                break;
+            }
+        }
+        caoIdx = cao;
+        goalCell = EXIT_R * cols + EXIT_C;
+
+        // 同样宽高的方块共用一份掩码表
+        shapeOf = new int[blockCount];
+        widthOf = new int[blockCount];
+        int[] shapeW = new int[blockCount], shapeH = new int[blockCount];
+        int shapes = 0;
+        for (int i = 0; i < blockCount; i++) {
+            Block b = blocks.get(i);
+            int s = 0;
+            while (s < shapes && (shapeW[s] != b.getWidth() || shapeH[s] != b.getHeight())) s++;
+            if (s == shapes) {
+                shapeW[s] = b.getWidth();
+                shapeH[s] = b.getHeight();
+                shapes++;
+            }
+            shapeOf[i] = s;
+            widthOf[i] = b.getWidth();
+        }
+
+        // 只有曹操的终点位置左右对称时，镜像折叠才不改变到终点的距离
+        this.foldMirror = foldMirror && cao != -1
+                && cols - widthOf[cao] - EXIT_C == EXIT_C;
+
+        shapeMask = new int[shapes][cells];
+        for (int s = 0; s < shapes; s++) {
+            for (int c = 0; c < cells; c++) {
+                int x = c % cols, y = c / cols;
+                if (x + shapeW[s] > cols || y + shapeH[s] > rows) continue;
+                int m = 0;
+                for (int dy = 0; dy < shapeH[s]; dy++) {
+                    for (int dx = 0; dx < shapeW[s]; dx++) {
+                        m |= 1 << ((y + dy) * cols + x + dx);
+                    }
+                }
+                shapeMask[s][c] = m;
+            }
+        }
+
+        // 类型和宽高都相同的方块可以互换
+        List<int[]> found = new ArrayList<>();
+        boolean[] grouped = new boolean[blockCount];
+        for (int i = 0; i < blockCount; i++) {
+            if (grouped[i]) continue;
+            Block bi = blocks.get(i);
+            int[] members = new int[blockCount];
+            int k = 0;
+            for (int j = i; j < blockCount; j++) {
+                Block bj = blocks.get(j);
+                if (bj.getType() == bi.getType() && shapeOf[j] == shapeOf[i]) {
+                    grouped[j] = true;
+                    members[k++] = j;
+                }
+            }
+            if (k > 1) found.add(Arrays.copyOf(members, k));
+        }
+        groups = found.toArray(new int[0][]);
+
+        int firstCol = 0, lastCol = 0;
+        for (int y = 0; y < rows; y++) {
+            firstCol |= 1 << (y * cols);
+            lastCol |= 1 << (y * cols + cols - 1);
+        }
+        int all = (1 << cells) - 1;
+        notFirstCol = all & ~firstCol;
+        notLastCol = all & ~lastCol;
+
+        // 横移一列要腾出 h 个空格，竖移一行要腾出 w 个，一步的位移不会超过空格数允许的范围
+        int empty = cells;
+        for (Block b : blocks) empty -= b.getWidth() * b.getHeight();
+        if (cao == -1) {
+            caoReach = 1;
+        } else {
+            Block c = blocks.get(cao);
+            caoReach = Math.max(1, Math.max(0, empty) / c.getHeight() + Math.max(0, empty) / c.getWidth());
+        }
+
+        step = new int[cells][DIRS.length];
+        for (int c = 0; c < cells; c++) {
+            int x = c % cols, y = c / cols;
+            for (int d = 0; d < DIRS.length; d++) {
+                int nx = x + DIRS[d].dx(), ny = y + DIRS[d].dy();
+                step[c][d] = (nx < 0 || nx >= cols || ny < 0 || ny >= rows) ? -1 : ny * cols + nx;
+            }
+        }
+    }
+
+    public static StateCodec of(Board board) {
+        return of(board, KeyMode.INDEXED);
+    }
+
+    public static StateCodec of(Board board, KeyMode keyMode) {
+        return of(board, keyMode, false);
+    }
+
+    public static StateCodec of(Board board, KeyMode keyMode, boolean foldMirror) {
+        return new StateCodec(board.getBlocks(), keyMode, foldMirror);
+    }
+
+    public long encode(Board board) {
+        List<Block> blocks = board.getBlocks();
+        long s = 0;
+        for (int i = 0; i < blockCount; i++) {
+            Block b = blocks.get(i);
+            s |= (long) (b.getY() * cols + b.getX()) << (i * BITS);
+        }
+        return s;
+    }
+
+    public KeyMode keyMode() { return keyMode; }
+    public boolean foldMirror() { return foldMirror; }
+    public int blockCount() { return blockCount; }
+    public int caoIndex() { return caoIdx; }
+    public int cols() { return cols; }
+    public int rows() { return rows; }
+    public int cells() { return cells; }
+
+    public int anchor(long state, int idx) {
+        return (int) ((state >>> (idx * BITS)) & FIELD);
+    }
+
+    public int x(long state, int idx) { return anchor(state, idx) % cols; }
+    public int y(long state, int idx) { return anchor(state, idx) / cols; }
+
+    public int cellMask(long state, int idx) {
+        return shapeMask[shapeOf[idx]][anchor(state, idx)];
+    }
+
+    public int occupancy(long state) {
+        int occ = 0;
+        for (int i = 0; i < blockCount; i++) {
+            occ |= shapeMask[shapeOf[i]][anchor(state, i)];
+        }
+        return occ;
+    }
+
+    /**
+     * 尝试把第 idx 块朝 dir 移动一格；occ 为 state 的占用掩码。
+     * 不能移动时返回 {@link #ILLEGAL}。
+     */
+    public long move(long state, int occ, int idx, Board.Direction dir) {
+        int from = anchor(state, idx);
+        int to = step[from][dir.ordinal()];
+        if (to < 0) return ILLEGAL;
+        int[] masks = shapeMask[shapeOf[idx]];
+        int target = masks[to];
+        if (target == 0) return ILLEGAL;
+        if ((occ & target & ~masks[from]) != 0) return ILLEGAL;
+        return withAnchor(state, idx, to);
+    }
+
+    /**
+     * 第 idx 块按走法模型能到的后继状态写进 out，返回个数；out 的长度至少为 {@link #cells()}。
+     * STEP：四个方向各移一格；SLIDE：其他块不动，这一块连续滑动能到的每个新位置。
+     */
+    public int successors(long state, int occ, int idx, MoveModel model, long[] out) {
+        int n = 0;
+        if (model == MoveModel.STEP) {
+            for (Board.Direction dir : DIRS) {
+                long next = move(state, occ, idx, dir);
+                if (next != ILLEGAL) out[n++] = next;
+            }
+            return n;
+        }
+        int from = anchor(state, idx);
+        for (int m = slideReach(occ, idx, from) & ~(1 << from); m != 0; m &= m - 1) {
+            out[n++] = withAnchor(state, idx, Integer.numberOfTrailingZeros(m));
+        }
+        return n;
+    }
+
+    // 其他块不动时，第 idx 块的左上角能到达的格子集合（含原位置），按位一层层扩散
+    private int slideReach(int occ, int idx, int from) {
+        int[] masks = shapeMask[shapeOf[idx]];
+        int others = occ & ~masks[from];
+        int free = 0;
+        for (int c = 0; c < cells; c++) {
+            if (masks[c] != 0 && (masks[c] & others) == 0) free |= 1 << c;
+        }
+        int reach = 1 << from;
+        while (true) {
+            int grow = (reach << cols | reach >>> cols
+                    | (reach << 1) & notFirstCol | (reach >>> 1) & notLastCol) & free & ~reach;
+            if (grow == 0) return reach;
+            reach |= grow;
+        }
+    }
+
+    /** 到终点至少还要几步（可采纳）：STEP 是曹操的曼哈顿距离，SLIDE 再按一步最多走多远折算 */
+    public int lowerBound(long state, MoveModel model) {
+        int d = caoDistance(state);
+        return model == MoveModel.STEP ? d : (d + caoReach - 1) / caoReach;
+    }
+
+    /**
+     * from 到 to 只有一块位置不同且能滑过去时，还原成一个走法（带最短的逐格路径），
+     * 否则返回 null。STEP 的后继还原出来就是一格的走法。
+     */
+    public MoveInfo moveBetween(long from, long to) {
+        int idx = -1;
+        for (int i = 0; i < blockCount; i++) {
+            if (anchor(from, i) != anchor(to, i)) {
+                if (idx != -1) return null;
+                idx = i;
+            }
+        }
+        if (idx == -1) return null;
+
+        int[] masks = shapeMask[shapeOf[idx]];
+        int start = anchor(from, idx), target = anchor(to, idx);
+        int others = occupancy(from) & ~masks[start];
+        int[] prevDir = new int[cells];
+        Arrays.fill(prevDir, -1);
+        int[] queue = new int[cells];
+        int head = 0, tail = 0;
+        queue[tail++] = start;
+        prevDir[start] = DIRS.length;
+        while (head < tail && prevDir[target] == -1) {
+            int c = queue[head++];
+            for (int d = 0; d < DIRS.length; d++) {
+                int t = step[c][d];
+                if (t < 0 || prevDir[t] != -1 || masks[t] == 0 || (masks[t] & others) != 0) continue;
+                prevDir[t] = d;
+                queue[tail++] = t;
+            }
+        }
+        if (prevDir[target] == -1) return null;
+
+        List<Board.Direction> path = new ArrayList<>();
+        for (int c = target; c != start; ) {
+            Board.Direction d = DIRS[prevDir[c]];
+            path.add(0, d);
+            c = step[c][opposite(d).ordinal()];
+        }
+        return new MoveInfo(idx, path.toArray(new Board.Direction[0]));
+    }
+
+    /**
+     * 去重和判等用的键，按构造时的 KeyMode 决定是否合并可互换的方块；
+     * 开启镜像折叠时取状态与其镜像两者键中较小的一个。
+     */
+    public long key(long state) {
+        long k = keyMode == KeyMode.SHAPE ? canonical(state) : state;
+        if (!foldMirror) return k;
+        long m = mirror(state);
+        if (keyMode == KeyMode.SHAPE) m = canonical(m);
+        return Math.min(k, m);
+    }
+
+    /** 左右镜像：每块的 x 变成 cols - width - x */
+    public long mirror(long state) {
+        long m = 0;
+        for (int i = 0; i < blockCount; i++) {
+            int a = anchor(state, i);
+            int x = a % cols, y = a / cols;
+            m |= (long) (y * cols + cols - widthOf[i] - x) << (i * BITS);
+        }
+        return m;
+    }
+
+    /**
+     * 每组可互换方块按格子编号从小到大重新分配下标。
+     * 结果本身也是合法的状态，可以直接继续生成走法。
+     */
+    public long canonical(long state) {
+        for (int[] g : groups) {
+            // 组很小，插入排序即可，不分配内存
+            for (int a = 1; a < g.length; a++) {
+                int v = anchor(state, g[a]);
+                int b = a - 1;
+                while (b >= 0 && anchor(state, g[b]) > v) {
+                    state = withAnchor(state, g[b + 1], anchor(state, g[b]));
+                    b--;
+                }
+                state = withAnchor(state, g[b + 1], v);
+            }
+        }
+        return state;
+    }
+
+    /**
+     * 从 from 出发找一步能到达 key(...) == targetKey 的走法，找不到返回 null。
+     * 用于把按键去重得到的状态链还原成真实的方块下标。
+     */
+    public MoveInfo moveToward(long from, long targetKey) {
+        return moveToward(from, targetKey, MoveModel.STEP);
+    }
+
+    public MoveInfo moveToward(long from, long targetKey, MoveModel model) {
+        int occ = occupancy(from);
+        long[] buf = new long[cells];
+        for (int idx = 0; idx < blockCount; idx++) {
+            int n = successors(from, occ, idx, model, buf);
+            for (int k = 0; k < n; k++) {
+                if (key(buf[k]) == targetKey) return moveBetween(from, buf[k]);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 所有合法的终点状态（曹操在出口，其余方块任意不重叠地摆放）的键，排好序、不重复。
+     * 反向搜索从这些状态一起出发；SHAPE 模式下同组方块只按格子编号递增摆放，省掉互换出来的重复。
+     */
+    public long[] goalStates() {
+        if (caoIdx == -1) return new long[0];
+        int[] prevInGroup = new int[blockCount];
+        Arrays.fill(prevInGroup, -1);
+        if (keyMode == KeyMode.SHAPE) {
+            for (int[] g : groups) {
+                for (int k = 1; k < g.length; k++) prevInGroup[g[k]] = g[k - 1];
+            }
+        }
+        long goal = withAnchor(0, caoIdx, goalCell);
+        long[][] out = {new long[256]};
+        int n = placeRest(goal, shapeMask[shapeOf[caoIdx]][goalCell], 0, prevInGroup, out, 0);
+        long[] keys = out[0];
+        for (int i = 0; i < n; i++) keys[i] = key(keys[i]);
+        Arrays.sort(keys, 0, n);
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            if (m == 0 || keys[i] != keys[m - 1]) keys[m++] = keys[i];
+        }
+        return Arrays.copyOf(keys, m);
+    }
+
+    // 按下标依次摆放第 idx 块及之后的方块，摆满一种就写进 out[0]，返回写到的位置
+    private int placeRest(long state, int occ, int idx, int[] prevInGroup, long[][] out, int n) {
+        if (idx == caoIdx) idx++;
+        if (idx == blockCount) {
+            if (n == out[0].length) out[0] = Arrays.copyOf(out[0], n * 2);
+            out[0][n++] = state;
+            return n;
+        }
+        int[] masks = shapeMask[shapeOf[idx]];
+        int first = prevInGroup[idx] == -1 ? 0 : anchor(state, prevInGroup[idx]) + 1;
+        for (int c = first; c < cells; c++) {
+            if (masks[c] == 0 || (masks[c] & occ) != 0) continue;
+            n = placeRest(withAnchor(state, idx, c), occ | masks[c], idx + 1, prevInGroup, out, n);
+        }
+        return n;
+    }
+
+    /** 按走法的逐格路径移动；中途被挡住时返回 {@link #ILLEGAL} */
+    public long apply(long state, MoveInfo move) {
+        for (Board.Direction dir : move.path) {
+            state = move(state, occupancy(state), move.blockIndex, dir);
+            if (state == ILLEGAL) return ILLEGAL;
+        }
+        return state;
+    }
+
+    private static long withAnchor(long state, int idx, int cell) {
+        int shift = idx * BITS;
+        return (state & ~(FIELD << shift)) | ((long) cell << shift);
+    }
+
+    public boolean isGoal(long state) {
+        return anchor(state, caoIdx) == goalCell;
+    }
+
+    /** 曹操到出口的曼哈顿距离 */
+    public int caoDistance(long state) {
+        int a = anchor(state, caoIdx);
+        return Math.abs(a / cols - EXIT_R) + Math.abs(a % cols - EXIT_C);
+    }
+
+    /** 曹操与出口之间出口列上被其他方块挡住的格子数 */
+    public int caoBlockers(long state, int occ) {
+        int caoY = y(state, caoIdx);
+        int others = occ & ~cellMask(state, caoIdx);
+        int cnt = 0;
+        for (int y = caoY; y < EXIT_R; y++) {
+            if ((others & (1 << (y * cols + EXIT_C))) != 0) cnt++;
+        }
+        return cnt;
+    }
+
+    public static Board.Direction opposite(Board.Direction d) {
+        switch (d) {
+            case UP:    return Board.Direction.DOWN;
+            case DOWN:  return Board.Direction.UP;
+            case LEFT:  return Board.Direction.RIGHT;
+            default:    return Board.Direction.LEFT;
+        }
+    }
+}
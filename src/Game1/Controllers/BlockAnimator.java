@@ -1,6 +1,7 @@
 package Game1.Controllers;
 
 import Game1.models.Block;
+import Game1.models.Board;
 
 import javax.swing.*;
 
@@ -8,7 +9,8 @@ public class BlockAnimator {
     private static final int ANIMATION_DURATION = 200; // 动画持续时间（毫秒）
     private static final int FRAME_INTERVAL = 20;      // 帧间隔（毫秒）
 
-    public static void animateMove(Block block, int targetX, int targetY, Runnable onComplete) {
+    //位置都经过 board 设置，占用表和格子表才会跟着更新
+    public static void animateMove(Board board, Block block, int targetX, int targetY, Runnable onComplete) {
         final int startX = block.getX();
         final int startY = block.getY();
         final long startTime = System.currentTimeMillis();
@@ -17,7 +19,7 @@ public class BlockAnimator {
         timer.addActionListener(e -> {
             long elapsed = System.currentTimeMillis() - startTime;
             if (elapsed >= ANIMATION_DURATION) {
-                block.setPosition(targetX, targetY);
+                board.setBlockPosition(block, targetX, targetY);
                 timer.stop();
                 onComplete.run();
                 return;
@@ -27,7 +29,7 @@ public class BlockAnimator {
             int currentX = (int) (startX + (targetX - startX) * progress);
             int currentY = (int) (startY + (targetY - startY) * progress);
 
-            block.setPosition(currentX, currentY);
+            board.setBlockPosition(block, currentX, currentY);
 //            block.getParent().repaint();
         });
         timer.start();
@@ -3,12 +3,25 @@ package Game1.Controllers;
 
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
 
 
-import Game1.AI.AStarSolver;
-import Game1.AI.BeamSolver;
+import Game1.AI.AnytimeSolver;
 import Game1.AI.MoveInfo;
+import Game1.AI.MoveModel;
+import Game1.AI.PathOptimizer;
+import Game1.AI.SolutionTable;
+import Game1.AI.SolveRequest;
+import Game1.AI.SolveResult;
+import Game1.AI.Solver;
+import Game1.AI.SolverRegistry;
 import Game1.models.Block;
 import Game1.models.Board;
 import Game1.models.GameState;
@@ -34,10 +47,32 @@ public class GameController {
 
     private MusicPlayer musicPlayer;
 
+    //每关的最优步数表，第一次用到时读取（没有文件就现场构建）
+    private final Map<Integer, SolutionTable> solutionTables = new HashMap<>();
+
+    //AI 算法和预算，可以用 -Dklotski.solver=... 指定算法
+    private String solverName = System.getProperty("klotski.solver", SolverRegistry.DEFAULT);
+    private long solveTimeLimitMs = 5000;
+    private boolean requireOptimal = false;
+    //SLIDE：一块连续滑多格算一步，解的步数更少；播放时仍然一格一格地走
+    private MoveModel moveModel = parseMoveModel(System.getProperty("klotski.moveModel"));
+
     private GameFrame gameframe;
     private int level;
     private LoginFrame loginFrame;
 
+    //-Dklotski.moveModel 写错时不能让游戏起不来，提示一下按 STEP 处理
+    private static MoveModel parseMoveModel(String name) {
+        if (name == null || name.isBlank()) return MoveModel.STEP;
+        try {
+            return MoveModel.valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("未知的 klotski.moveModel: " + name + "，可选 "
+                    + Arrays.toString(MoveModel.values()) + "，使用 STEP");
+            return MoveModel.STEP;
+        }
+    }
+
     public void setLoginFrame(LoginFrame loginFrame) {
         this.loginFrame = loginFrame;
     }
@@ -121,7 +156,7 @@ public class GameController {
             GameState state = (GameState) ois.readObject();     //state包括username和board
 
             //读取后设置的参数：
-            getCountdownTimer().stop();
+            if (getCountdownTimer() != null) getCountdownTimer().stop();   //还没打开游戏界面时没有计时器
             this.board = state.getBoard();
             setLevel(state.getLevel());
             setFirstMove_done(false);
@@ -186,46 +221,77 @@ public class GameController {
 
 
     //AI相关
+    private synchronized SolutionTable getSolutionTable() {
+        if (level < 1 || level > 3) return null;
+        return solutionTables.computeIfAbsent(level,
+                l -> SolutionTable.load(SolutionTable.DEFAULT_DIR, l));
+    }
+
+    // 提示：查表走出当前局面的最优一步
+    public boolean hint() {
+        SolutionTable table = getSolutionTable();
+        if (table == null) return false;
+        MoveInfo move = table.bestMove(board);
+        if (move == null) return false;
+        gameframe.setSelectedBlock(board.getBlocks().get(move.blockIndex));
+        moveBlock(move.direction);
+        return true;
+    }
+
     // AI 自动求解
     public void autoSolve() {
-        new SwingWorker<List<MoveInfo>, Void>() {
+        new SwingWorker<SolveResult, Void>() {
+            private SolveRequest request;   //查表时为 null：表里的解已经最短，不用后处理
+
             @Override
-            protected List<MoveInfo> doInBackground() {
+            protected SolveResult doInBackground() {
+
+                //内置关卡直接查表，得到的就是最短解（表按一格一步计算）
+                SolutionTable table = moveModel == MoveModel.STEP ? getSolutionTable() : null;
+                if (table != null && table.distance(board) != SolutionTable.NO_SOLUTION) {
+                    List<MoveInfo> solution = table.solve(board);
+                    System.out.println("AI solution length (table): " + solution.size());
+                    return new SolveResult(solution, true, 0);
+                }
 
-                //这里要选算法了
+                //这里要选算法了：-Dklotski.solver=anytime/beam-adaptive/beam/astar/ida/bfs/hda/bidirectional
+                //默认的 anytime 先用窄 beam 很快给出一个解，边播放边换成更短的，最后用 A* 证明最短
+                //beam-adaptive 从窄到宽反复跑 beam，到 solveTimeLimitMs 就交出目前最短的解
                 //beam最快但是绕远路
-                //双向BFS比较快，路径很短，但是无法正确走完
                 //Astar慢，但是是最快路径
-                List<MoveInfo> solution = BeamSolver.solve(board);
-
+                //超过时间预算时返回离终点最近的一段路径
+                //求解用棋盘的副本：播放的时候真实棋盘会一直在变
+                //不保证最短的解先直接开始播放，同时在后台交给 PathOptimizer 去掉弯路，短了就换过去
+                request = SolveRequest.of(new Board(board))
+                        .withTimeLimit(solveTimeLimitMs)
+                        .withRequireOptimal(requireOptimal)
+                        .withMoveModel(moveModel);
+                Solver solver = SolverRegistry.forRequest(solverName, request);
+                if (solver instanceof AnytimeSolver anytime) {
+                    anytime.publish(request).subscribe(new Playback(request));
+                    return null;      //由 Playback 边收边播
+                }
 
-                System.out.println("AI solution length: " + solution.size());
-                return solution;
+                SolveResult result = solver.solve(request);
+                System.out.println("AI solution length: " + result.moves.size()
+                        + (result.isSolved() ? "" : " (partial, budget exhausted)")
+                        + (result.optimal ? " (optimal)" : ""));
+                return result;
             }
 
             @Override
             protected void done() {
                 try {
-                    List<MoveInfo> solution = get();
-                    if (solution == null || solution.isEmpty()) {
+                    SolveResult result = get();
+                    if (result == null) return;
+                    if (result.moves.isEmpty()) {
                         System.out.println("No solution found or empty list.");
                         return;
                     }
-                    // 执行动画
-                    new Thread(() -> {
-                        for (MoveInfo move : solution) {
-                            SwingUtilities.invokeLater(() -> {
-                                Block target = board.getBlocks().get(move.blockIndex);
-                                gameframe.setSelectedBlock(target);
-                                moveBlock(move.direction);
-                            });
-                            try {
-                                Thread.sleep(250);
-                            } catch (InterruptedException e) {
-                                Thread.currentThread().interrupt();
-                            }
-                        }
-                    }).start();
+                    // 执行动画：滑动多格的走法也一格一格地播放
+                    Playback playback = new Playback(request);
+                    playback.accept(result);
+                    playback.onComplete();
                 } catch (Exception e) {
                     e.printStackTrace();
                 }
@@ -233,6 +299,146 @@ public class GameController {
         }.execute();
     }
 
+    /**
+     * AI 走法的播放：每 250ms 走一格。
+     * 播放途中收到更短的解时，如果“撤回已经走出的几格 + 新解的格数”比走完旧解剩下的还少，
+     * 就把后面的计划换成：先撤回到求解时的局面，再走新解。
+     * 完整但不保证最短的解先原样播放，再在后台线程用 PathOptimizer 去掉弯路，
+     * 去完弯路的解当作又一个更短的解交给 offer；期间又来了新解时，旧解就不再处理。
+     */
+    private class Playback implements Flow.Subscriber<SolveResult> {
+        private static final int UNDO = -1;
+
+        private final List<int[]> steps = new ArrayList<>();   // {方块下标, 方向序号}，方块下标为 UNDO 表示撤回一格
+        private int cursor;         // 下一格在 steps 里的位置
+        private int applied;        // 当前相对求解时的局面走出去的格数
+        private boolean finished;   // 不会再有新的解了
+        private Thread player;
+        private final SolveRequest request;   // 为 null 时不做后处理
+        private int received;       // 收到过几个解，用来判断后台处理的是不是最新的解
+        private int polishing;      // 还在排队或处理中的后处理个数，没处理完之前不算结束
+        private ExecutorService polisher;
+
+        Playback(SolveRequest request) {
+            this.request = request;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(SolveResult result) {
+            System.out.println("AI solution length: " + result.moves.size()
+                    + (result.isSolved() ? "" : " (partial, budget exhausted)")
+                    + (result.optimal ? " (optimal)" : ""));
+            accept(result);
+        }
+
+        // 原样播放，需要的话再排一个后台的去弯路
+        synchronized void accept(SolveResult result) {
+            offer(result.moves);
+            int generation = ++received;
+            if (request == null || !result.isSolved() || result.optimal) return;
+            if (polisher == null) {
+                polisher = Executors.newSingleThreadExecutor(r -> {
+                    Thread t = new Thread(r, "ai-path-optimizer");
+                    t.setDaemon(true);
+                    return t;
+                });
+            }
+            polishing++;
+            polisher.execute(() -> polish(result, generation));
+        }
+
+        private void polish(SolveResult result, int generation) {
+            try {
+                synchronized (this) {
+                    if (generation != received) return;   //已经有更新的解了
+                }
+                List<MoveInfo> shorter = new PathOptimizer()
+                        .optimize(request.getBoard(), result.moves, request.getMoveModel());
+                if (shorter.size() < result.moves.size()) offer(shorter);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            } finally {
+                synchronized (this) {
+                    polishing--;
+                    notifyAll();
+                }
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            throwable.printStackTrace();
+            onComplete();
+        }
+
+        @Override
+        public synchronized void onComplete() {
+            finished = true;
+            if (polisher != null) polisher.shutdown();   //已经排上的后处理仍会做完
+            notifyAll();
+        }
+
+        synchronized void offer(List<MoveInfo> solution) {
+            List<int[]> next = new ArrayList<>();
+            for (MoveInfo move : solution) {
+                for (Board.Direction step : move.path) next.add(new int[]{move.blockIndex, step.ordinal()});
+            }
+            if (next.isEmpty()) return;
+
+            if (player == null) {
+                steps.addAll(next);
+                player = new Thread(this::play, "ai-playback");
+                player.setDaemon(true);
+                player.start();
+                return;
+            }
+            int left = steps.size() - cursor;
+            if (left == 0 || applied + next.size() >= left) return;   //旧解快走完了，换过去不划算
+
+            System.out.println("AI switches to a shorter solution: rewind " + applied + ", then " + next.size());
+            steps.subList(cursor, steps.size()).clear();
+            for (int i = 0; i < applied; i++) steps.add(new int[]{UNDO, 0});
+            steps.addAll(next);
+            notifyAll();
+        }
+
+        // 取下一格；计划走完了就等新解或者结束
+        private synchronized int[] take() throws InterruptedException {
+            while (cursor == steps.size()) {
+                if (finished && polishing == 0) return null;
+                wait();
+            }
+            int[] step = steps.get(cursor++);
+            applied += step[0] == UNDO ? -1 : 1;
+            return step;
+        }
+
+        private void play() {
+            try {
+                for (int[] next = take(); next != null; next = take()) {
+                    int[] step = next;
+                    SwingUtilities.invokeLater(() -> {
+                        if (step[0] == UNDO) {
+                            undo();
+                            return;
+                        }
+                        Block target = board.getBlocks().get(step[0]);
+                        gameframe.setSelectedBlock(target);
+                        moveBlock(Board.Direction.values()[step[1]]);
+                    });
+                    Thread.sleep(250);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
 
     //选关相关
     public void initialize_Board() {
@@ -309,6 +515,38 @@ public class GameController {
         return level;
     }
 
+    public String getSolverName() {
+        return solverName;
+    }
+
+    public void setSolverName(String solverName) {
+        this.solverName = solverName;
+    }
+
+    public long getSolveTimeLimitMs() {
+        return solveTimeLimitMs;
+    }
+
+    public void setSolveTimeLimitMs(long solveTimeLimitMs) {
+        this.solveTimeLimitMs = solveTimeLimitMs;
+    }
+
+    public boolean isRequireOptimal() {
+        return requireOptimal;
+    }
+
+    public void setRequireOptimal(boolean requireOptimal) {
+        this.requireOptimal = requireOptimal;
+    }
+
+    public MoveModel getMoveModel() {
+        return moveModel;
+    }
+
+    public void setMoveModel(MoveModel moveModel) {
+        this.moveModel = moveModel;
+    }
+
     public void setLevel(int level) {
         this.level = level;
     }
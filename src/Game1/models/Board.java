@@ -1,11 +1,10 @@
 package Game1.models;
 
 
-import java.awt.*;
 import java.io.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Stack;
 
 public class Board implements Serializable {
     @Serial
@@ -16,7 +15,39 @@ public class Board implements Serializable {
 
     private List<Block> blocks;
     private int moves;
-    private transient Stack<Board> history = new Stack<>(); // 不序列化历史记录,
+    //悔棋记录：每一步只存 (方块下标 << 2 | 方向)，不序列化
+    private transient int[] history = new int[64];
+    private transient int historySize;
+
+    //占用情况：格子 y * COLS + x 对应第几位；cellOwner 是格子 -> 方块下标（空格为 -1）
+    //都随移动增量更新，反序列化后重建
+    private transient int occupancy;
+    private transient byte[] cellOwner;
+
+    //[宽-1][高-1][左上角格子] -> 占用掩码，放不下时为 0
+    private static final int[][][] SHAPE_MASK = new int[COLS][ROWS][ROWS * COLS];
+    //[宽-1][高-1][左上角格子][方向] -> 朝该方向移动一格时新占用的那条边，越界时为 0
+    private static final int[][][][] EDGE_MASK = new int[COLS][ROWS][ROWS * COLS][4];
+
+    static {
+        for (int w = 1; w <= COLS; w++) {
+            for (int h = 1; h <= ROWS; h++) {
+                for (int c = 0; c < ROWS * COLS; c++) {
+                    SHAPE_MASK[w - 1][h - 1][c] = rectMask(c % COLS, c / COLS, w, h);
+                }
+                for (int c = 0; c < ROWS * COLS; c++) {
+                    int from = SHAPE_MASK[w - 1][h - 1][c];
+                    if (from == 0) continue;
+                    for (Direction d : Direction.values()) {
+                        int nx = c % COLS + d.dx(), ny = c / COLS + d.dy();
+                        if (nx < 0 || ny < 0 || nx >= COLS || ny >= ROWS) continue;
+                        int to = SHAPE_MASK[w - 1][h - 1][ny * COLS + nx];
+                        EDGE_MASK[w - 1][h - 1][c][d.ordinal()] = to & ~from;
+                    }
+                }
+            }
+        }
+    }
 
 
     //构造方法：有一个给AI用
@@ -38,7 +69,14 @@ public class Board implements Serializable {
         }
         this.moves = other.moves;
         // 重新初始化历史，不继承其他状态
-        this.history = new Stack<>();
+        this.history = new int[64];
+        rebuildOccupancy();
+    }
+
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        rebuildOccupancy();
     }
 
 
@@ -48,7 +86,7 @@ public class Board implements Serializable {
         if(level == 1){initialize_Board_1();}
         else if(level == 2){initialize_Board_2();}
         else if(level == 3){initialize_Board_3();}
-
+        clearHistory();
     }
 
     //默认
@@ -60,98 +98,111 @@ public class Board implements Serializable {
 
 
 
-    public Block getBlockAt(Point p) {
-        for (Block b : blocks) {
-            if (b.contains(p)) {
-                return b;
-            }
-        }
-        return null;
+    //按格子坐标找方块，没有返回 null；直接查表
+    public Block getBlockAt(int col, int row) {
+        if (col < 0 || col >= COLS || row < 0 || row >= ROWS) return null;
+        int owner = cellOwner[row * COLS + col];
+        return owner < 0 ? null : blocks.get(owner);
     }
 
 
 
+    //移动后新占用的那条边必须在棋盘内并且是空的
     public boolean canMove(Block block, Direction direction) {
-        int dx = 0, dy = 0;
-        switch (direction) {
-            case UP: dy = -1; break;
-            case DOWN: dy = 1; break;
-            case LEFT: dx = -1; break;
-            case RIGHT: dx = 1; break;
-        }
+        int edge = edgeMask(block, direction);
+        return edge != 0 && (occupancy & edge) == 0;
+    }
 
-        // Check boundaries
-        if (block.getX() + dx < 0 || block.getX() + block.getWidth() + dx > COLS ||
-                block.getY() + dy < 0 || block.getY() + block.getHeight() + dy > ROWS) {
-            return false;
-        }
+    private static int edgeMask(Block block, Direction direction) {
+        if (block.getWidth() > COLS || block.getHeight() > ROWS) return 0;
+        int cell = block.getY() * COLS + block.getX();
+        if (block.getX() < 0 || block.getY() < 0 || cell >= ROWS * COLS) return 0;
+        return EDGE_MASK[block.getWidth() - 1][block.getHeight() - 1][cell][direction.ordinal()];
+    }
 
-        // Check collision with other blocks
-        for (Block otherblocks : blocks) {
-            if (otherblocks == block) continue;
+    private static int shapeMask(Block block) {
+        if (block.getX() < 0 || block.getY() < 0 || block.getX() >= COLS || block.getY() >= ROWS
+                || block.getWidth() > COLS || block.getHeight() > ROWS) return 0;
+        return SHAPE_MASK[block.getWidth() - 1][block.getHeight() - 1][block.getY() * COLS + block.getX()];
+    }
 
-            if (rectanglesOverlap(
-                    block.getX() + dx, block.getY() + dy, block.getWidth(), block.getHeight(),
-                    otherblocks.getX(), otherblocks.getY(), otherblocks.getWidth(), otherblocks.getHeight())) {
-                return false;
+    private static int rectMask(int x, int y, int w, int h) {
+        if (x + w > COLS || y + h > ROWS) return 0;
+        int m = 0;
+        for (int dy = 0; dy < h; dy++) {
+            for (int dx = 0; dx < w; dx++) {
+                m |= 1 << ((y + dy) * COLS + x + dx);
             }
         }
-
-        return true;
-    }
-
-    private boolean rectanglesOverlap(int x1, int y1, int w1, int h1,
-                                      int x2, int y2, int w2, int h2) {
-        return x1 < x2 + w2 && x1 + w1 > x2 &&
-                y1 < y2 + h2 && y1 + h1 > y2;
+        return m;
     }
 
 
 
     public void moveBlock(Block block, Direction direction) {
         if (!canMove(block, direction)) return;
-        saveState();         //保存到移动的历史
-
-        switch (direction) {
-            case UP: block.setPosition(block.getX(), block.getY() - 1); break;
-            case DOWN: block.setPosition(block.getX(), block.getY() + 1); break;
-            case LEFT: block.setPosition(block.getX() - 1, block.getY());break;
-            case RIGHT: block.setPosition(block.getX() + 1, block.getY()); break;
-        }
+        int index = blocks.indexOf(block);
+        if (index < 0) return;
+        pushHistory(index, direction);         //保存到移动的历史
 
+        place(index, block.getX() + direction.dx(), block.getY() + direction.dy());
 
         increaseMoves();
     }
 
-    //记录移动历史
-    public void saveState() {
-        try {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ObjectOutputStream oos = new ObjectOutputStream(baos);
-            oos.writeObject(this);
-            oos.close();
-
-            ByteArrayInputStream bais = new ByteArrayInputStream(baos.toByteArray());
-            ObjectInputStream ois = new ObjectInputStream(bais);
-            Board copy = (Board) ois.readObject();
-
-            getHistory().push(copy);
-        } catch (IOException | ClassNotFoundException e) {
-            e.printStackTrace();
+    //直接摆放某个方块（不记历史，不检查碰撞），占用表同步更新
+    public void setBlockPosition(Block block, int x, int y) {
+        int index = blocks.indexOf(block);
+        if (index >= 0) place(index, x, y);
+    }
+
+    private void place(int index, int x, int y) {
+        Block block = blocks.get(index);
+        int from = shapeMask(block);
+        occupancy &= ~from;
+        setOwner(from, -1);
+        block.setPosition(x, y);
+        int to = shapeMask(block);
+        occupancy |= to;
+        setOwner(to, index);
+    }
+
+    private void setOwner(int mask, int index) {
+        for (int m = mask; m != 0; m &= m - 1) {
+            cellOwner[Integer.numberOfTrailingZeros(m)] = (byte) index;
         }
     }
 
+    //按当前方块位置重建占用掩码和格子表
+    private void rebuildOccupancy() {
+        occupancy = 0;
+        cellOwner = new byte[ROWS * COLS];
+        Arrays.fill(cellOwner, (byte) -1);
+        for (int i = 0; i < blocks.size(); i++) {
+            int m = shapeMask(blocks.get(i));
+            occupancy |= m;
+            setOwner(m, i);
+        }
+    }
 
+    //记录移动历史：只记哪块朝哪走了一格，不复制棋盘；只有 moveBlock 真的走了以后才记
+    private void pushHistory(int index, Direction direction) {
+        if (history == null) history = new int[64];
+        if (historySize == history.length) history = Arrays.copyOf(history, historySize * 2);
+        history[historySize++] = index << 2 | direction.ordinal();
+    }
 
 
-    //悔棋
-    public boolean undo() {
-        if (history.isEmpty()) return false;
-        Board prev_board = history.pop();
 
-        this.blocks = prev_board.getBlocks();
-        setMoves(  prev_board.getMoves()  );
 
+    //悔棋：把最后一步的方块原地挪回去，方块对象不变
+    public boolean undo() {
+        if (historySize == 0) return false;
+        int last = history[--historySize];
+        Block block = blocks.get(last >>> 2);
+        Direction direction = Direction.values()[last & 3];
+        place(last >>> 2, block.getX() - direction.dx(), block.getY() - direction.dy());
+        setMoves(  getMoves() - 1  );
 
         return true;
     }
@@ -189,6 +240,7 @@ public class Board implements Serializable {
         blocks.add(new Block(Block.BlockType.SOLDIER, 2, 3, 1, 1));
         blocks.add(new Block(Block.BlockType.SOLDIER, 0, 4, 1, 1));
         blocks.add(new Block(Block.BlockType.SOLDIER, 3, 4, 1, 1));
+        rebuildOccupancy();
     }
 
     public void initialize_Board_2() {
@@ -207,6 +259,7 @@ public class Board implements Serializable {
         blocks.add(new Block(Block.BlockType.SOLDIER, 1, 4, 1, 1));
         blocks.add(new Block(Block.BlockType.SOLDIER, 2, 4, 1, 1));
         blocks.add(new Block(Block.BlockType.SOLDIER, 3, 4, 1, 1));
+        rebuildOccupancy();
     }
 
     public void initialize_Board_3() {
@@ -225,12 +278,16 @@ public class Board implements Serializable {
         blocks.add(new Block(Block.BlockType.SOLDIER, 3, 0, 1, 1));
         blocks.add(new Block(Block.BlockType.SOLDIER, 0, 1, 1, 1));
         blocks.add(new Block(Block.BlockType.SOLDIER, 3, 1, 1, 1));
-
+        rebuildOccupancy();
     }
 
     //工具方法
     public void clearHistory(){
-        history.clear();
+        historySize = 0;
+    }
+
+    public int getHistorySize() {
+        return historySize;
     }
 
 
@@ -239,12 +296,13 @@ public class Board implements Serializable {
     public void reset() {
         initializeBoard();
         moves = 0;
+        clearHistory();
     }
     public void reset(int level){
         if (level == 1) initialize_Board_1();
         else if (level == 2)initialize_Board_2();
         else if (level == 3) initialize_Board_3();
-
+        clearHistory();
     }
 
     //枚举类   javabean
@@ -274,19 +332,5 @@ public class Board implements Serializable {
     public void increaseMoves() {
         moves++;
     }
-
-    public Stack<Board> getHistory() {
-        if(history == null) {
-            history = new Stack<Board>();
-
-            return history;
-        }
-        return history;
-
-    }
-
-    public void setHistory(Stack<Board> history) {
-        this.history = history;
-    }
 }
 
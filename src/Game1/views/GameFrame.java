@@ -5,7 +5,6 @@ import javax.swing.*;
 import Game1.Controllers.GameController;
 import java.awt.*;
 import java.awt.event.*;
-import java.awt.image.BufferedImage;
 
 import Game1.Controllers.MusicPlayer;
 import Game1.Controllers.UserController;
@@ -218,6 +217,22 @@ public class GameFrame extends JFrame {
         layeredPane.add(aiSolveBtn, JLayeredPane.PALETTE_LAYER);
         aiSolveBtn.setBounds(65, 450, btnWidth, btnHeight);
 
+        //提示：查表走一步最优走法
+        JButton hintButton = new JButton("Hint");
+        hintButton.setFont(new Font("大字体", Font.PLAIN, 10));
+        hintButton.addActionListener(e -> {
+            if (controller.hint()) {
+                boardPanel.repaint();
+            } else {
+                JOptionPane.showMessageDialog(this,
+                        "当前局面没有可用的提示",
+                        "提示",
+                        JOptionPane.INFORMATION_MESSAGE);
+            }
+        });
+        layeredPane.add(hintButton, JLayeredPane.PALETTE_LAYER);
+        hintButton.setBounds(65, 410, btnWidth, btnHeight);
+
 
     }
 
@@ -311,8 +326,7 @@ public class GameFrame extends JFrame {
             //获取选中的方块
             addMouseListener(new MouseAdapter() {
                 public void mouseClicked(MouseEvent evt) {
-                    Point p = new Point(evt.getX() / CELL_SIZE, evt.getY() / CELL_SIZE);
-                    selectedBlock = controller.getBoard().getBlockAt(p);
+                    selectedBlock = controller.getBoard().getBlockAt(evt.getX() / CELL_SIZE, evt.getY() / CELL_SIZE);
                     repaint();
                 }
             });
@@ -339,10 +353,8 @@ public class GameFrame extends JFrame {
                 int y = block.getY() * CELL_SIZE;
                 int width = block.getWidth() * CELL_SIZE;
                 int height = block.getHeight() * CELL_SIZE;
-                // 绘制贴图
-                BufferedImage texture = block.getTexture();
-
-                    g.drawImage(texture, x, y, width, height, this);
+                // 绘制贴图（共享缓存，已经按格子大小缩放好）
+                g.drawImage(TextureCache.get(block, CELL_SIZE), x, y, width, height, this);
 
                 // 绘制选中框
                 if (block == selectedBlock) {
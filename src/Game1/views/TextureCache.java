@@ -0,0 +1,103 @@
+package Game1.views;
+
+import Game1.models.Block;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 全进程共享的方块贴图缓存。
+ * - 每种方块的 PNG 只解码一次
+ * - 按 (类型, 宽, 高, 每格像素) 缓存缩放好的贴图，之后每次绘制直接复用
+ * - 有显示器时转成和屏幕兼容的图片格式，Java2D 会自动把它放进显存加速
+ * 方块对象本身不再持有图片，棋盘复制、存档、求解器里的副本都不再碰 ImageIO。
+ */
+public final class TextureCache {
+    private record Key(Block.BlockType type, int width, int height, int scale) {
+    }
+
+    private static final Map<Key, Image> SCALED = new ConcurrentHashMap<>();
+    private static final Map<Block.BlockType, BufferedImage> SOURCES = new EnumMap<>(Block.BlockType.class);
+
+    private TextureCache() {
+    }
+
+    public static Image get(Block block, int scale) {
+        return get(block.getType(), block.getWidth(), block.getHeight(), scale);
+    }
+
+    public static Image get(Block.BlockType type, int width, int height, int scale) {
+        return SCALED.computeIfAbsent(new Key(type, width, height, scale),
+                k -> resize(source(k.type()), k.width() * k.scale(), k.height() * k.scale()));
+    }
+
+    private static synchronized BufferedImage source(Block.BlockType type) {
+        BufferedImage img = SOURCES.get(type);
+        if (img == null) {
+            img = load(type);
+            SOURCES.put(type, img);
+        }
+        return img;
+    }
+
+    private static BufferedImage load(Block.BlockType type) {
+        try (InputStream is = TextureCache.class.getResourceAsStream(getImagePath(type))) {
+            if (is == null) return createFallbackTexture();
+            BufferedImage img = ImageIO.read(is);
+            return img == null ? createFallbackTexture() : img;
+        } catch (IOException ex) {
+            return createFallbackTexture();
+        }
+    }
+
+    private static Image resize(BufferedImage original, int width, int height) {
+        BufferedImage resized = createImage(width, height);
+        Graphics2D g = resized.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(original, 0, 0, width, height, null);
+        g.dispose();
+        return resized;
+    }
+
+    //有屏幕时用屏幕兼容的格式，绘制时不用再转换像素
+    private static BufferedImage createImage(int width, int height) {
+        if (!GraphicsEnvironment.isHeadless()) {
+            GraphicsConfiguration gc = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                    .getDefaultScreenDevice().getDefaultConfiguration();
+            return gc.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+        }
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    // 备用纹理：图片缺失时画一个棋盘格
+    private static BufferedImage createFallbackTexture() {
+        BufferedImage img = new BufferedImage(80, 80, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = img.createGraphics();
+
+        for (int i = 0; i < 80; i += 10) {
+            for (int j = 0; j < 80; j += 10) {
+                g2d.setColor(((i + j) / 10 % 2 == 0) ? Color.PINK : Color.WHITE);
+                g2d.fillRect(i, j, 10, 10);
+            }
+        }
+
+        g2d.dispose();
+        return img;
+    }
+
+    private static String getImagePath(Block.BlockType type) {
+        switch (type) {
+            case CAO_CAO: return "/Game1/pic/Caocao.png";
+            case GUAN_YU: return "/Game1/pic/Guanyu.png";
+            case GENERAL: return "/Game1/pic/General.png";
+            case SOLDIER: return "/Game1/pic/Soldier.png";
+            default: return "";
+        }
+    }
+}